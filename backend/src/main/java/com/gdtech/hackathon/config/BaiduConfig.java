@@ -31,6 +31,16 @@ public class BaiduConfig {
      */
     private int syncInterval = 10;
 
+    /**
+     * UV同步时并发查询的线程数
+     */
+    private int syncConcurrency = 8;
+
+    /**
+     * 同一百度统计账号同时进行的查询数上限
+     */
+    private int maxConcurrentPerAccount = 2;
+
     /**
      * 多个百度统计账号配置
      * Key: 账号标识 (account1, account2, ...)
@@ -25,6 +25,31 @@ public class HackathonProperties {
      */
     private Map<String, StageTimeline> stages = new HashMap<>();
 
+    /**
+     * 飞书表格本地副本配置
+     */
+    private Store store = new Store();
+
+    /**
+     * 排行榜缓存配置
+     */
+    private Leaderboard leaderboard = new Leaderboard();
+
+    /**
+     * 投资日志配置
+     */
+    private Journal journal = new Journal();
+
+    /**
+     * 投资人会话令牌配置
+     */
+    private Session session = new Session();
+
+    /**
+     * 访问上游（飞书、百度统计、微信）的共享HTTP客户端配置
+     */
+    private Http http = new Http();
+
     @Data
     public static class StageTimeline {
         /**
@@ -38,6 +63,106 @@ public class HackathonProperties {
         private String end;
     }
 
+    @Data
+    public static class Store {
+        /**
+         * 后台刷新间隔（秒）
+         */
+        private int refreshInterval = 30;
+
+        /**
+         * 增量刷新使用的"修改时间"字段名，表中没有该字段或未配置时每次全量刷新
+         */
+        private String modifiedTimeField;
+
+        /**
+         * 增量刷新无法发现删除的记录，超过该时间（秒）后做一次全量刷新
+         */
+        private int fullRefreshInterval = 600;
+    }
+
+    @Data
+    public static class Leaderboard {
+        /**
+         * 排行榜快照超过该时间（秒）后在后台刷新，刷新完成前继续返回旧快照
+         */
+        private int refreshAfter = 30;
+
+        /**
+         * SSE推送心跳间隔（秒）
+         */
+        private int heartbeatInterval = 15;
+
+        /**
+         * 单个订阅者一次SSE发送的最长时间（秒），超过后视为跟不上推送，断开该订阅者
+         */
+        private int sendTimeout = 10;
+    }
+
+    @Data
+    public static class Journal {
+        /**
+         * 投资日志文件路径，投资受理前先写入该文件，重启时重放未写入飞书的投资
+         */
+        private String path = "data/investment-journal.log";
+
+        /**
+         * 死信文件路径，多次写入飞书仍失败的投资记录写入该文件，需要人工补录
+         */
+        private String deadLetterPath = "data/investment-dead-letter.log";
+
+        /**
+         * 投资记录写入飞书的最大尝试次数，超过后转入死信文件，不再阻塞后续投资
+         */
+        private int maxWriteAttempts = 8;
+    }
+
+    @Data
+    public static class Session {
+        /**
+         * 会话令牌签名密钥，未配置时每次启动随机生成（重启后需要重新登录）
+         */
+        private String secret;
+
+        /**
+         * 会话令牌有效期（小时）
+         */
+        private int ttlHours = 24;
+    }
+
+    @Data
+    public static class Http {
+        /**
+         * 建立连接超时（毫秒）
+         */
+        private int connectTimeout = 3000;
+
+        /**
+         * 等待响应超时（毫秒）
+         */
+        private int readTimeout = 15000;
+
+        /**
+         * 每个上游主机的最大连接数
+         */
+        private int maxConnectionsPerHost = 50;
+
+        /**
+         * 连接池已满时等待空闲连接的超时（毫秒）
+         */
+        private int pendingAcquireTimeout = 5000;
+
+        /**
+         * 空闲连接保留时间（秒），超过后关闭
+         */
+        private int maxIdleTime = 50;
+
+        /**
+         * 上游支持时使用HTTP/2（TLS ALPN协商，不支持时回退到HTTP/1.1）
+         */
+        private boolean http2 = true;
+    }
+
     /**
      * 获取指定阶段的时间配置
      */
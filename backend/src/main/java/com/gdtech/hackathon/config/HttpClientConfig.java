@@ -0,0 +1,72 @@
+package com.gdtech.hackathon.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * 上游HTTP客户端配置
+ * 飞书（WebClient）、百度统计和微信（RestTemplate）共用同一个 Reactor Netty 客户端：
+ * 按主机复用keep-alive连接池，上游支持时协商HTTP/2，请求gzip压缩响应并自动解压，统一连接/响应超时
+ */
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * 上游连接池（每个上游主机一个子池）
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider(HackathonProperties hackathonProperties) {
+        HackathonProperties.Http http = hackathonProperties.getHttp();
+        return ConnectionProvider.builder("upstream")
+                .maxConnections(http.getMaxConnectionsPerHost())
+                .pendingAcquireTimeout(Duration.ofMillis(http.getPendingAcquireTimeout()))
+                .maxIdleTime(Duration.ofSeconds(http.getMaxIdleTime()))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Bean
+    public HttpClient upstreamHttpClient(ConnectionProvider upstreamConnectionProvider,
+                                         HackathonProperties hackathonProperties) {
+        HackathonProperties.Http http = hackathonProperties.getHttp();
+        HttpProtocol[] protocols = http.isHttp2()
+                ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+        return HttpClient.create(upstreamConnectionProvider)
+                .protocol(protocols)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, http.getConnectTimeout())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(http.getReadTimeout()))
+                .compress(true);
+    }
+
+    /**
+     * WebClient 连接器，Spring Boot 自动配置的 WebClient.Builder 会使用它
+     */
+    @Bean
+    public ClientHttpConnector clientHttpConnector(HttpClient upstreamHttpClient) {
+        return new ReactorClientHttpConnector(upstreamHttpClient);
+    }
+
+    /**
+     * RestTemplate Bean - 用于HTTP请求（如微信、百度统计API调用）
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClient upstreamHttpClient, HackathonProperties hackathonProperties) {
+        HackathonProperties.Http http = hackathonProperties.getHttp();
+        ReactorNettyClientRequestFactory requestFactory = new ReactorNettyClientRequestFactory(upstreamHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(http.getReadTimeout()));
+        requestFactory.setExchangeTimeout(Duration.ofMillis(http.getConnectTimeout() + http.getReadTimeout()));
+        return new RestTemplate(requestFactory);
+    }
+}
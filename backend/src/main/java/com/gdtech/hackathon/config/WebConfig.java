@@ -1,13 +1,12 @@
 package com.gdtech.hackathon.config;
 
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
- * Web 配置 - CORS 跨域支持 & RestTemplate
+ * Web 配置 - CORS 跨域支持
+ * 访问上游的HTTP客户端见 {@link HttpClientConfig}
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -18,14 +17,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("ETag", "X-Leaderboard-Version")
                 .maxAge(3600);
     }
-
-    /**
-     * RestTemplate Bean - 用于HTTP请求（如微信API调用）
-     */
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 }
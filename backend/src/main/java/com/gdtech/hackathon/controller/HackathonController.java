@@ -7,14 +7,25 @@ import com.gdtech.hackathon.model.CompetitionStage;
 import com.gdtech.hackathon.model.Investor;
 import com.gdtech.hackathon.model.Project;
 import com.gdtech.hackathon.service.HackathonService;
+import com.gdtech.hackathon.service.LeaderboardBroadcaster;
+import com.gdtech.hackathon.service.LeaderboardSnapshot;
+import com.gdtech.hackathon.service.SessionTokenService;
 import com.gdtech.hackathon.service.WeChatService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -26,14 +37,25 @@ import java.util.Map;
 @Validated
 public class HackathonController {
 
+    /**
+     * 排行榜版本号响应头，客户端下次请求时作为since参数传回
+     */
+    public static final String LEADERBOARD_VERSION_HEADER = "X-Leaderboard-Version";
+
     private final HackathonService hackathonService;
+    private final LeaderboardBroadcaster leaderboardBroadcaster;
+    private final SessionTokenService sessionTokenService;
     private final WeChatService weChatService;
     private final com.gdtech.hackathon.service.BaiduTongjiService baiduTongjiService;
 
     public HackathonController(HackathonService hackathonService,
+                              LeaderboardBroadcaster leaderboardBroadcaster,
+                              SessionTokenService sessionTokenService,
                               WeChatService weChatService,
                               com.gdtech.hackathon.service.BaiduTongjiService baiduTongjiService) {
         this.hackathonService = hackathonService;
+        this.leaderboardBroadcaster = leaderboardBroadcaster;
+        this.sessionTokenService = sessionTokenService;
         this.weChatService = weChatService;
         this.baiduTongjiService = baiduTongjiService;
     }
@@ -62,16 +84,92 @@ public class HackathonController {
 
     /**
      * 获取所有项目列表（带排名）
+     * 直接返回快照预先序列化的响应体，客户端支持时返回gzip版本；
+     * 带强ETag（gzip版本使用单独的ETag），If-None-Match命中时返回304
+     * 传入since（客户端持有的版本号）时只返回此后变化的项目，见 {@link com.gdtech.hackathon.dto.LeaderboardDelta}
      */
     @GetMapping("/projects")
-    public ApiResponse<List<Project>> getAllProjects() {
+    public ResponseEntity<?> getAllProjects(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Project> projects = hackathonService.getAllProjects();
-            return ApiResponse.success(projects);
+            if (since != null) {
+                byte[] delta = hackathonService.getLeaderboardDeltaBody(since);
+                if (delta == null) {
+                    return ResponseEntity.ok(ApiResponse.success(Collections.<Project>emptyList()));
+                }
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .cacheControl(CacheControl.noCache())
+                        .body(delta);
+            }
+
+            LeaderboardSnapshot snapshot = hackathonService.getLeaderboardSnapshot();
+            if (snapshot == null) {
+                return ResponseEntity.ok(ApiResponse.success(Collections.<Project>emptyList()));
+            }
+            if (snapshot.getBody() == null) {
+                return ResponseEntity.ok(ApiResponse.success(snapshot.getProjects()));
+            }
+
+            boolean gzip = snapshot.getGzipBody() != null
+                    && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+            String etag = gzip ? snapshot.getGzipEtag() : snapshot.getEtag();
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .header(LEADERBOARD_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .header(LEADERBOARD_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+                return builder.body(snapshot.getGzipBody());
+            }
+            return builder.body(snapshot.getBody());
         } catch (Exception e) {
             log.error("获取项目列表失败", e);
-            return ApiResponse.error("获取项目列表失败");
+            return ResponseEntity.ok(ApiResponse.error("获取项目列表失败"));
+        }
+    }
+
+    /**
+     * If-None-Match 是否命中：按逗号拆分实体标签逐个精确比较（弱比较，忽略 W/ 前缀），"*" 匹配任意版本
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || etag.equals(candidate)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * 订阅排行榜推送（Server-Sent Events）
+     * 连接建立后立即推送当前排行榜，之后每次排行榜变化推送一次完整快照（事件名 leaderboard，id为快照版本号）
+     */
+    @GetMapping(value = "/projects/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProjects(HttpServletResponse response) {
+        // 禁止Nginx等反向代理缓冲事件流
+        response.setHeader("X-Accel-Buffering", "no");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return leaderboardBroadcaster.subscribe();
     }
 
     /**
@@ -93,6 +191,7 @@ public class HackathonController {
 
     /**
      * 投资人登录
+     * 登录成功时返回会话令牌（token），之后的请求通过 Authorization: Bearer 请求头携带
      */
     @PostMapping("/login")
     public ApiResponse<Investor> login(@Valid @RequestBody LoginRequest request) {
@@ -101,6 +200,7 @@ public class HackathonController {
             if (investor == null) {
                 return ApiResponse.error(401, "账号或密码错误");
             }
+            investor.setToken(sessionTokenService.issue(investor.getUsername()));
             return ApiResponse.success("登录成功", investor);
         } catch (Exception e) {
             log.error("登录失败", e);
@@ -108,6 +208,20 @@ public class HackathonController {
         }
     }
 
+    /**
+     * 获取当前会话的投资人信息（含投资历史）
+     * 凭登录时签发的会话令牌识别投资人，不需要密码
+     */
+    @GetMapping("/investor/me")
+    public ApiResponse<Investor> getSessionInvestor(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String username = sessionTokenService.resolve(authorization);
+        if (username == null) {
+            return ApiResponse.error(401, "登录已过期，请重新登录");
+        }
+        return getInvestorInfo(username);
+    }
+
     /**
      * 获取投资人信息（含投资历史）
      */
@@ -127,10 +241,22 @@ public class HackathonController {
 
     /**
      * 执行投资
+     * 携带会话令牌时，令牌对应的投资人必须与请求中的投资人一致
      */
     @PostMapping("/invest")
-    public ApiResponse<String> invest(@Valid @RequestBody InvestmentRequest request) {
+    public ApiResponse<String> invest(
+            @Valid @RequestBody InvestmentRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         try {
+            if (authorization != null) {
+                String username = sessionTokenService.resolve(authorization);
+                if (username == null) {
+                    return ApiResponse.error(401, "登录已过期，请重新登录");
+                }
+                if (!username.equals(request.getInvestorUsername())) {
+                    return ApiResponse.error(403, "只能使用当前登录的投资人账号投资");
+                }
+            }
             boolean success = hackathonService.invest(
                     request.getInvestorUsername(),
                     request.getInvestorName(),
@@ -184,6 +310,22 @@ public class HackathonController {
         }
     }
 
+    /**
+     * 排行榜缓存统计
+     * 包含实际计算次数、被合并的并发请求数、后台刷新次数、当前快照年龄和SSE订阅数
+     */
+    @GetMapping("/cache/stats")
+    public ApiResponse<Map<String, Object>> getCacheStats() {
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>(hackathonService.getLeaderboardStats());
+            stats.put("streamSubscribers", leaderboardBroadcaster.getSubscriberCount());
+            return ApiResponse.success(stats);
+        } catch (Exception e) {
+            log.error("获取缓存统计失败", e);
+            return ApiResponse.error("获取缓存统计失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 清除指定投资人缓存
      *
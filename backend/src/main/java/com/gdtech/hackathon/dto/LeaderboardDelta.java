@@ -0,0 +1,44 @@
+package com.gdtech.hackathon.dto;
+
+import com.gdtech.hackathon.model.Project;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 排行榜增量更新
+ * 客户端传入已持有的版本号，只返回此后发生变化的项目
+ */
+@Data
+public class LeaderboardDelta {
+
+    /**
+     * 当前排行榜版本号
+     */
+    private Long version;
+
+    /**
+     * 增量的基准版本号（客户端传入的版本），全量返回时为空
+     */
+    private Long baseVersion;
+
+    /**
+     * 是否为全量数据（客户端版本过旧或未知时返回全量）
+     */
+    private Boolean full;
+
+    /**
+     * 变化的项目（全量时为全部项目）
+     */
+    private List<Project> projects;
+
+    /**
+     * 已移除的项目ID
+     */
+    private List<Long> removed;
+
+    /**
+     * 当前排行榜中项目ID的顺序
+     */
+    private List<Long> order;
+}
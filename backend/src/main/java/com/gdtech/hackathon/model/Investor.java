@@ -73,6 +73,12 @@ public class Investor {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private List<InvestmentHistory> investmentHistory = new ArrayList<>();
 
+    /**
+     * 会话令牌 - 仅登录时返回，之后的请求放在 Authorization: Bearer 请求头中
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String token;
+
     /**
      * 是否启用
      */
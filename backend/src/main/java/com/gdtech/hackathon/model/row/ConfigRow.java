@@ -0,0 +1,38 @@
+package com.gdtech.hackathon.model.row;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 配置表行（加载时解码一次）
+ */
+@Getter
+@EqualsAndHashCode
+public final class ConfigRow {
+
+    public static final String F_KEY = "配置项";
+    public static final String F_VALUE = "配置值";
+
+    /**
+     * 解码用到的字段，加载表时只请求这些字段
+     */
+    public static final List<String> FIELDS = List.of(
+            F_KEY, F_VALUE);
+
+    private final String recordId;
+    private final String key;
+    private final String value;
+
+    private ConfigRow(Map<String, Object> record) {
+        this.recordId = FieldValues.getString(record, "record_id");
+        this.key = FieldValues.getString(record, F_KEY);
+        this.value = FieldValues.getString(record, F_VALUE);
+    }
+
+    public static ConfigRow from(Map<String, Object> record) {
+        return new ConfigRow(record);
+    }
+}
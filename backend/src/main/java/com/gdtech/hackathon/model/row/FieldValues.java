@@ -0,0 +1,123 @@
+package com.gdtech.hackathon.model.row;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 飞书多维表格字段值解码工具
+ * 只在记录加载时调用一次，业务代码直接使用解码后的行对象
+ */
+@Slf4j
+public final class FieldValues {
+
+    private FieldValues() {
+    }
+
+    public static String getString(Map<String, Object> record, String key) {
+        if (record == null || key == null) {
+            return null;
+        }
+        Object value = record.get(key);
+        if (value == null) {
+            return null;
+        }
+
+        // 处理飞书多维表格的URL类型字段：{"link": "...", "text": "...", "type": "url"}
+        if (value instanceof Map) {
+            Map<?, ?> valueMap = (Map<?, ?>) value;
+            // URL类型字段
+            if (valueMap.containsKey("link")) {
+                Object link = valueMap.get("link");
+                return link != null ? link.toString().trim() : null;
+            }
+            // 也尝试取text字段
+            if (valueMap.containsKey("text")) {
+                Object text = valueMap.get("text");
+                return text != null ? text.toString().trim() : null;
+            }
+        }
+
+        // 处理飞书多维表格的文本类型字段：[{"text": "...", "type": "text"}]
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (!list.isEmpty() && list.get(0) instanceof Map) {
+                Map<?, ?> firstItem = (Map<?, ?>) list.get(0);
+                if (firstItem.containsKey("text")) {
+                    Object text = firstItem.get("text");
+                    return text != null ? text.toString().trim() : null;
+                }
+            }
+        }
+
+        return value.toString().trim();
+    }
+
+    public static Boolean getBoolean(Map<String, Object> record, String key, Boolean defaultValue) {
+        if (record == null || key == null) {
+            return defaultValue;
+        }
+        Object value = record.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String strValue = value.toString().trim().toLowerCase();
+        if ("true".equals(strValue) || "1".equals(strValue)) {
+            return true;
+        }
+        if ("false".equals(strValue) || "0".equals(strValue)) {
+            return false;
+        }
+        return defaultValue;
+    }
+
+    public static long getLong(Map<String, Object> record, String key) {
+        if (record == null || key == null) {
+            return 0L;
+        }
+        Object value = record.get(key);
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            String strValue = value.toString().trim();
+            if (strValue.isEmpty()) {
+                return 0L;
+            }
+            return Long.parseLong(strValue);
+        } catch (NumberFormatException e) {
+            log.warn("字段{}的值{}无法转换为Long，返回默认值0", key, value);
+            return 0L;
+        }
+    }
+
+    public static int getInteger(Map<String, Object> record, String key) {
+        if (record == null || key == null) {
+            return 0;
+        }
+        Object value = record.get(key);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            String strValue = value.toString().trim();
+            if (strValue.isEmpty()) {
+                return 0;
+            }
+            return Integer.parseInt(strValue);
+        } catch (NumberFormatException e) {
+            log.warn("字段{}的值{}无法转换为Integer，返回默认值0", key, value);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gdtech.hackathon.model.row;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 投资记录表行（加载时解码一次）
+ */
+@Getter
+@EqualsAndHashCode
+public final class InvestmentRow {
+
+    public static final String F_INVESTOR_USERNAME = "投资人账号";
+    public static final String F_INVESTOR_NAME = "投资人姓名";
+    public static final String F_PROJECT_ID = "项目ID";
+    public static final String F_PROJECT_NAME = "项目名称";
+    public static final String F_AMOUNT = "投资金额";
+    public static final String F_TIME = "投资时间";
+
+    /**
+     * 解码用到的字段，加载表时只请求这些字段
+     */
+    public static final List<String> FIELDS = List.of(
+            F_INVESTOR_USERNAME, F_INVESTOR_NAME, F_PROJECT_ID, F_PROJECT_NAME, F_AMOUNT, F_TIME);
+
+    private final String recordId;
+    private final String investorUsername;
+    private final String investorName;
+    private final long projectId;
+    private final String projectName;
+    private final int amount;
+
+    /**
+     * 投资时间（Unix时间戳，毫秒），未填写为null
+     */
+    private final Long time;
+
+    private InvestmentRow(Map<String, Object> record) {
+        this.recordId = FieldValues.getString(record, "record_id");
+        this.investorUsername = FieldValues.getString(record, F_INVESTOR_USERNAME);
+        this.investorName = FieldValues.getString(record, F_INVESTOR_NAME);
+        this.projectId = FieldValues.getLong(record, F_PROJECT_ID);
+        this.projectName = FieldValues.getString(record, F_PROJECT_NAME);
+        this.amount = FieldValues.getInteger(record, F_AMOUNT);
+        this.time = record.get(F_TIME) != null ? FieldValues.getLong(record, F_TIME) : null;
+    }
+
+    public static InvestmentRow from(Map<String, Object> record) {
+        return new InvestmentRow(record);
+    }
+}
@@ -0,0 +1,60 @@
+package com.gdtech.hackathon.model.row;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 投资人表行（加载时解码一次）
+ */
+@Getter
+@EqualsAndHashCode
+public final class InvestorRow {
+
+    public static final String F_ID = "投资人ID";
+    public static final String F_USERNAME = "账号";
+    public static final String F_PASSWORD = "初始密码";
+    public static final String F_NAME = "姓名";
+    public static final String F_TITLE = "职务";
+    public static final String F_AVATAR = "头像URL";
+    public static final String F_INITIAL_AMOUNT = "初始额度";
+    public static final String F_REMAINING_AMOUNT = "剩余额度";
+    public static final String F_ENABLED = "是否启用";
+
+    /**
+     * 解码用到的字段，加载表时只请求这些字段
+     */
+    public static final List<String> FIELDS = List.of(
+            F_ID, F_USERNAME, F_PASSWORD, F_NAME, F_TITLE, F_AVATAR, F_INITIAL_AMOUNT, F_REMAINING_AMOUNT,
+            F_ENABLED);
+
+    private final String recordId;
+    private final long id;
+    private final String username;
+    private final String password;
+    private final String name;
+    private final String title;
+    private final String avatar;
+    private final int initialAmount;
+    private final int remainingAmount;
+    private final boolean enabled;
+
+    private InvestorRow(Map<String, Object> record) {
+        this.recordId = FieldValues.getString(record, "record_id");
+        this.id = FieldValues.getLong(record, F_ID);
+        this.username = FieldValues.getString(record, F_USERNAME);
+        this.password = FieldValues.getString(record, F_PASSWORD);
+        this.name = FieldValues.getString(record, F_NAME);
+        this.title = FieldValues.getString(record, F_TITLE);
+        this.avatar = FieldValues.getString(record, F_AVATAR);
+        this.initialAmount = FieldValues.getInteger(record, F_INITIAL_AMOUNT);
+        this.remainingAmount = FieldValues.getInteger(record, F_REMAINING_AMOUNT);
+        this.enabled = FieldValues.getBoolean(record, F_ENABLED, true);
+    }
+
+    public static InvestorRow from(Map<String, Object> record) {
+        return new InvestorRow(record);
+    }
+}
@@ -0,0 +1,69 @@
+package com.gdtech.hackathon.model.row;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 项目表行（加载时解码一次）
+ */
+@Getter
+@EqualsAndHashCode
+public final class ProjectRow {
+
+    public static final String F_ID = "项目ID";
+    public static final String F_NAME = "项目名称";
+    public static final String F_DESCRIPTION = "一句话描述";
+    public static final String F_URL = "项目网址";
+    public static final String F_IMAGE = "项目配图URL";
+    public static final String F_TEAM_NAME = "队伍名称";
+    public static final String F_TEAM_NUMBER = "队伍编号";
+    public static final String F_TEAM_URL = "团队介绍页URL";
+    public static final String F_BAIDU_ACCOUNT = "百度统计账号";
+    public static final String F_BAIDU_SITE_ID = "百度统计SiteID";
+    public static final String F_UV = "累计UV";
+    public static final String F_ENABLED = "是否启用";
+
+    /**
+     * 解码用到的字段，加载表时只请求这些字段
+     */
+    public static final List<String> FIELDS = List.of(
+            F_ID, F_NAME, F_DESCRIPTION, F_URL, F_IMAGE, F_TEAM_NAME, F_TEAM_NUMBER, F_TEAM_URL,
+            F_BAIDU_ACCOUNT, F_BAIDU_SITE_ID, F_UV, F_ENABLED);
+
+    private final String recordId;
+    private final long id;
+    private final String name;
+    private final String description;
+    private final String url;
+    private final String image;
+    private final String teamName;
+    private final String teamNumber;
+    private final String teamUrl;
+    private final String baiduAccount;
+    private final String baiduSiteId;
+    private final long uv;
+    private final boolean enabled;
+
+    private ProjectRow(Map<String, Object> record) {
+        this.recordId = FieldValues.getString(record, "record_id");
+        this.id = FieldValues.getLong(record, F_ID);
+        this.name = FieldValues.getString(record, F_NAME);
+        this.description = FieldValues.getString(record, F_DESCRIPTION);
+        this.url = FieldValues.getString(record, F_URL);
+        this.image = FieldValues.getString(record, F_IMAGE);
+        this.teamName = FieldValues.getString(record, F_TEAM_NAME);
+        this.teamNumber = FieldValues.getString(record, F_TEAM_NUMBER);
+        this.teamUrl = FieldValues.getString(record, F_TEAM_URL);
+        this.baiduAccount = FieldValues.getString(record, F_BAIDU_ACCOUNT);
+        this.baiduSiteId = FieldValues.getString(record, F_BAIDU_SITE_ID);
+        this.uv = FieldValues.getLong(record, F_UV);
+        this.enabled = FieldValues.getBoolean(record, F_ENABLED, true);
+    }
+
+    public static ProjectRow from(Map<String, Object> record) {
+        return new ProjectRow(record);
+    }
+}
@@ -3,23 +3,35 @@ package com.gdtech.hackathon.schedule;
 import com.gdtech.hackathon.config.BaiduConfig;
 import com.gdtech.hackathon.config.FeishuConfig;
 import com.gdtech.hackathon.model.CompetitionStage;
+import com.gdtech.hackathon.model.row.ProjectRow;
 import com.gdtech.hackathon.service.BaiduTongjiService;
 import com.gdtech.hackathon.service.FeishuService;
+import com.gdtech.hackathon.service.FeishuTableStore;
 import com.gdtech.hackathon.service.HackathonService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * UV数据同步定时任务
  * 定期从百度统计API获取UV数据并更新到飞书表格
- * 支持多个百度统计账号
+ * 支持多个百度统计账号，各项目并发查询，同一账号的并发数受限
  */
 @Slf4j
 @Component
@@ -27,35 +39,49 @@ public class UVSyncScheduler {
 
     private final BaiduTongjiService baiduTongjiService;
     private final FeishuService feishuService;
+    private final FeishuTableStore tableStore;
     private final FeishuConfig feishuConfig;
     private final BaiduConfig baiduConfig;
     private final HackathonService hackathonService;
+    private final CacheManager cacheManager;
+
+    // UV查询线程池
+    private final ExecutorService syncExecutor;
+
+    // 百度统计账号 -> 并发查询许可
+    private final Map<String, Semaphore> accountPermits = new ConcurrentHashMap<>();
 
     public UVSyncScheduler(
             BaiduTongjiService baiduTongjiService,
             FeishuService feishuService,
+            FeishuTableStore tableStore,
             FeishuConfig feishuConfig,
             BaiduConfig baiduConfig,
-            HackathonService hackathonService
+            HackathonService hackathonService,
+            CacheManager cacheManager
     ) {
         this.baiduTongjiService = baiduTongjiService;
         this.feishuService = feishuService;
+        this.tableStore = tableStore;
         this.feishuConfig = feishuConfig;
         this.baiduConfig = baiduConfig;
         this.hackathonService = hackathonService;
+        this.cacheManager = cacheManager;
+        this.syncExecutor = Executors.newFixedThreadPool(Math.max(1, baiduConfig.getSyncConcurrency()), r -> {
+            Thread t = new Thread(r);
+            t.setName("uv-sync-" + t.getId());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
      * 同步所有项目的UV数据
      * 根据配置的同步间隔定期执行（默认10分钟）
-     * UV更新后清除所有项目相关缓存 (afterInvocation=true确保在同步完成后清除)
+     * 只把与本地副本中UV不同的项目写入飞书，并只在有项目UV变化时清除项目缓存、
+     * 标记排行榜快照失效（后台重新计算，期间继续返回旧快照）
      */
     @Scheduled(fixedDelayString = "${baidu.tongji.sync-interval:10}000", initialDelay = 60000)
-    @Caching(evict = {
-            @CacheEvict(value = "projects", allEntries = true, beforeInvocation = false),
-            @CacheEvict(value = "project", allEntries = true, beforeInvocation = false),
-            @CacheEvict(value = "allProjects", allEntries = true, beforeInvocation = false)
-    })
     public void syncAllProjectUV() {
         try {
             // 检查当前阶段，如果是结束阶段则跳过同步
@@ -67,86 +93,154 @@ public class UVSyncScheduler {
 
             log.info("开始同步项目UV数据...");
 
-            // 获取所有项目
+            // 获取所有项目（本地表副本）
             String tableId = feishuConfig.getProjectsTableId();
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
+            List<ProjectRow> records = tableStore.getProjectRows();
 
             if (records.isEmpty()) {
                 log.info("没有需要同步的项目");
                 return;
             }
 
-            int successCount = 0;
-            int failCount = 0;
-
-            for (Map<String, Object> record : records) {
-                try {
-                    String recordId = (String) record.get("record_id");
-                    Long projectId = getLong(record, "项目ID");
-                    String projectName = (String) record.get("项目名称");
-                    String baiduAccount = (String) record.get("百度统计账号");
-                    String baiduSiteId = (String) record.get("百度统计SiteID");
-                    Boolean enabled = (Boolean) record.getOrDefault("是否启用", true);
-
-                    if (!enabled) {
-                        log.debug("项目 {} 已禁用，跳过", projectName);
-                        continue;
-                    }
-
-                    if (baiduAccount == null || baiduAccount.trim().isEmpty()) {
-                        log.debug("项目 {} 没有配置百度统计账号，跳过", projectName);
-                        continue;
-                    }
+            long startTime = System.currentTimeMillis();
+            AtomicInteger successCount = new AtomicInteger();
+            AtomicInteger unchangedCount = new AtomicInteger();
+            AtomicInteger failCount = new AtomicInteger();
+
+            // 记录ID -> 需要更新的UV字段，全部项目查询完成后批量写入飞书
+            Map<String, Map<String, Object>> updates = new ConcurrentHashMap<>();
+            // 记录ID -> 项目ID，用于只清除已写入飞书的项目缓存
+            Map<String, Long> changedProjectIds = new ConcurrentHashMap<>();
+
+            // 并发查询各项目UV，同一百度统计账号的并发数受信号量限制
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (ProjectRow record : records) {
+                String projectName = record.getName();
+                String baiduAccount = record.getBaiduAccount();
+                String baiduSiteId = record.getBaiduSiteId();
+
+                if (!record.isEnabled()) {
+                    log.debug("项目 {} 已禁用，跳过", projectName);
+                    continue;
+                }
 
-                    if (baiduSiteId == null || baiduSiteId.trim().isEmpty()) {
-                        log.debug("项目 {} 没有配置百度统计SiteID，跳过", projectName);
-                        continue;
-                    }
+                if (baiduAccount == null || baiduAccount.trim().isEmpty()) {
+                    log.debug("项目 {} 没有配置百度统计账号，跳过", projectName);
+                    continue;
+                }
 
-                    // 检查账号配置是否存在
-                    BaiduConfig.AccountCredentials credentials = baiduConfig.getAccountCredentials(baiduAccount);
-                    if (credentials == null) {
-                        log.warn("项目 {} 的百度统计账号 {} 未配置，跳过", projectName, baiduAccount);
-                        continue;
-                    }
+                if (baiduSiteId == null || baiduSiteId.trim().isEmpty()) {
+                    log.debug("项目 {} 没有配置百度统计SiteID，跳过", projectName);
+                    continue;
+                }
 
-                    // 获取从活动开始到现在的累计UV（实时累计）
-                    Integer uv = baiduTongjiService.getCumulativeUVFromStart(baiduAccount, baiduSiteId);
+                // 检查账号配置是否存在
+                BaiduConfig.AccountCredentials credentials = baiduConfig.getAccountCredentials(baiduAccount);
+                if (credentials == null) {
+                    log.warn("项目 {} 的百度统计账号 {} 未配置，跳过", projectName, baiduAccount);
+                    continue;
+                }
 
-                    // 如果获取失败（活动未开始或查询出错），设置UV为0
-                    if (uv == null) {
-                        uv = 0;
-                        log.info("项目 {} (ID:{}, 账号:{}) UV查询失败或活动未开始，设置UV=0", projectName, projectId, baiduAccount);
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Integer uv = queryProjectUV(record);
+                        if (uv == null) {
+                            // 查询失败时保留上次的UV，不写入飞书
+                            failCount.incrementAndGet();
+                            return;
+                        }
+                        if (uv.longValue() == record.getUv()) {
+                            unchangedCount.incrementAndGet();
+                            return;
+                        }
+                        Map<String, Object> fields = new HashMap<>();
+                        fields.put("累计UV", uv.longValue());
+                        updates.put(record.getRecordId(), fields);
+                        changedProjectIds.put(record.getRecordId(), record.getId());
+                    } catch (Exception e) {
+                        log.error("同步项目 {} UV失败", projectName, e);
+                        failCount.incrementAndGet();
                     }
+                }, syncExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            log.info("并发查询 {} 个项目UV耗时: {}ms", futures.size(), System.currentTimeMillis() - startTime);
 
-                    // 更新飞书表格中的UV值
-                    Map<String, Object> fields = new HashMap<>();
-                    fields.put("累计UV", uv.longValue());
-
-                    feishuService.updateRecord(tableId, recordId, fields);
-
-                    log.info("项目 {} (ID:{}, 账号:{}) UV更新成功: {}", projectName, projectId, baiduAccount, uv);
-                    successCount++;
-
+            // 批量更新飞书表格中变化的UV值（每500条一次请求）
+            // 每组写入成功后立即更新本地表副本和缓存，后续组失败时已写入的UV不会丢失
+            if (!updates.isEmpty()) {
+                try {
+                    feishuService.batchUpdateRecords(tableId, updates, written -> {
+                        tableStore.mergeRecords(tableId, written);
+                        successCount.addAndGet(written.size());
+                        Set<Long> writtenProjectIds = new HashSet<>();
+                        for (String recordId : written.keySet()) {
+                            writtenProjectIds.add(changedProjectIds.get(recordId));
+                        }
+                        evictProjectCaches(writtenProjectIds);
+                        hackathonService.invalidateLeaderboard();
+                    });
                 } catch (Exception e) {
-                    log.error("同步项目UV失败", e);
-                    failCount++;
+                    log.error("批量更新项目UV失败，已写入 {} 个", successCount.get(), e);
+                    failCount.addAndGet(updates.size() - successCount.get());
                 }
             }
 
-            log.info("UV数据同步完成: 成功 {}, 失败 {}", successCount, failCount);
+            log.info("UV数据同步完成: 更新 {}, 未变化 {}, 失败 {}, 总耗时: {}ms",
+                    successCount.get(), unchangedCount.get(), failCount.get(), System.currentTimeMillis() - startTime);
 
         } catch (Exception e) {
             log.error("UV同步任务异常", e);
         }
     }
 
-    private Long getLong(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null) return 0L;
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
+    /**
+     * 查询单个项目的累计UV（在同步线程池中执行）
+     * 先获取该百度统计账号的信号量，避免同一账号并发请求过多触发限流
+     */
+    private Integer queryProjectUV(ProjectRow record) throws InterruptedException {
+        String baiduAccount = record.getBaiduAccount();
+        Semaphore permits = accountPermits.computeIfAbsent(baiduAccount,
+                k -> new Semaphore(Math.max(1, baiduConfig.getMaxConcurrentPerAccount())));
+
+        Integer uv;
+        permits.acquire();
+        try {
+            // 获取从活动开始到现在的累计UV（实时累计）
+            uv = baiduTongjiService.getCumulativeUVFromStart(baiduAccount, record.getBaiduSiteId());
+        } finally {
+            permits.release();
+        }
+
+        // 活动未开始时返回0，查询出错返回null
+        if (uv == null) {
+            log.info("项目 {} (ID:{}, 账号:{}) UV查询失败，保留上次的UV: {}",
+                    record.getName(), record.getId(), baiduAccount, record.getUv());
+        } else {
+            log.info("项目 {} (ID:{}, 账号:{}) UV查询成功: {}",
+                    record.getName(), record.getId(), baiduAccount, uv);
+        }
+        return uv;
+    }
+
+    /**
+     * 清除UV发生变化的项目缓存
+     */
+    private void evictProjectCaches(Set<Long> changedProjectIds) {
+        Cache projectsCache = cacheManager.getCache("projects");
+        if (projectsCache != null) {
+            projectsCache.clear();
         }
-        return Long.parseLong(value.toString());
+        Cache projectCache = cacheManager.getCache("project");
+        if (projectCache != null) {
+            for (Long projectId : changedProjectIds) {
+                projectCache.evict(projectId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
     }
 }
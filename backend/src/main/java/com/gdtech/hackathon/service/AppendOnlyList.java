@@ -0,0 +1,88 @@
+package com.gdtech.hackathon.service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读、可廉价追加的列表，用于表快照
+ * 追加时返回新列表，原列表不变；多个版本共享同一个底层数组，每个版本只看到自己长度以内的元素
+ * 只有最新版本（底层数组已占用长度等于自身长度）可以直接写入数组尾部，否则复制到新数组（容量翻倍），
+ * 因此连续追加摊还为 O(追加的元素数)，不再每次复制整张表
+ */
+final class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final AppendOnlyList<Object> EMPTY = new AppendOnlyList<>(new Object[0], new AtomicInteger(), 0);
+
+    private final Object[] elements;
+
+    /**
+     * 底层数组已被占用的长度（所有共享该数组的版本共用）
+     */
+    private final AtomicInteger used;
+    private final int size;
+
+    private AppendOnlyList(Object[] elements, AtomicInteger used, int size) {
+        this.elements = elements;
+        this.used = used;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> AppendOnlyList<E> empty() {
+        return (AppendOnlyList<E>) EMPTY;
+    }
+
+    /**
+     * 复制给定元素创建列表
+     */
+    static <E> AppendOnlyList<E> copyOf(Collection<? extends E> items) {
+        if (items instanceof AppendOnlyList) {
+            @SuppressWarnings("unchecked")
+            AppendOnlyList<E> list = (AppendOnlyList<E>) items;
+            return list;
+        }
+        Object[] elements = items.toArray();
+        return new AppendOnlyList<>(elements, new AtomicInteger(elements.length), elements.length);
+    }
+
+    /**
+     * 追加元素，返回新列表（原列表不变）
+     */
+    AppendOnlyList<E> withAppended(List<? extends E> items) {
+        if (items.isEmpty()) {
+            return this;
+        }
+        int newSize = size + items.size();
+        if (newSize <= elements.length && used.compareAndSet(size, newSize)) {
+            // 本列表是该数组上的最新版本，直接写入尾部；旧版本的长度不变，看不到新元素
+            for (int i = 0; i < items.size(); i++) {
+                elements[size + i] = items.get(i);
+            }
+            return new AppendOnlyList<>(elements, used, newSize);
+        }
+        Object[] grown = Arrays.copyOf(elements, Math.max(newSize, Math.max(16, size * 2)));
+        // 数组尾部可能是其他版本追加的元素，清空避免引用残留
+        Arrays.fill(grown, size, Math.min(elements.length, grown.length), null);
+        for (int i = 0; i < items.size(); i++) {
+            grown[size + i] = items.get(i);
+        }
+        return new AppendOnlyList<>(grown, new AtomicInteger(newSize), newSize);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
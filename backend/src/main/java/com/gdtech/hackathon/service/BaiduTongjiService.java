@@ -13,8 +13,14 @@ import org.springframework.web.client.RestTemplate;
 import jakarta.annotation.PostConstruct;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * 百度统计服务
@@ -29,9 +35,19 @@ public class BaiduTongjiService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
 
-    public BaiduTongjiService(BaiduConfig baiduConfig) {
+    // 海选期开始时间：2025年10月25日 0:00
+    private static final LocalDate EVENT_START_DATE = LocalDate.of(2025, 10, 25);
+
+    private static final DateTimeFormatter TREND_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/M/d");
+
+    /**
+     * "账号|站点ID" -> 已定稿的每日UV（早于昨天的日期）
+     */
+    private final Map<String, NavigableMap<LocalDate, Integer>> finalizedDailyUV = new ConcurrentHashMap<>();
+
+    public BaiduTongjiService(BaiduConfig baiduConfig, RestTemplate restTemplate) {
         this.baiduConfig = baiduConfig;
-        this.restTemplate = new RestTemplate();
+        this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -209,17 +225,39 @@ public class BaiduTongjiService {
             return;
         }
 
-        // 如果没有access_token，先通过client credentials获取
-        if (credentials.getAccessToken() == null || credentials.getAccessToken().isEmpty()) {
-            log.info("账号 {} 没有access_token，正在获取...", accountName);
-            getTokenByClientCredentials(accountName);
-        } else if (isTokenExpired(accountName)) {
-            log.info("账号 {} Token已过期，正在刷新...", accountName);
-            // 如果有refresh_token，使用refresh_token刷新，否则重新获取
-            if (credentials.getRefreshToken() != null && !credentials.getRefreshToken().isEmpty()) {
+        // UV同步会并发查询同一账号，获取/刷新token按账号串行执行
+        synchronized (credentials) {
+            // 如果没有access_token，先通过client credentials获取
+            if (credentials.getAccessToken() == null || credentials.getAccessToken().isEmpty()) {
+                log.info("账号 {} 没有access_token，正在获取...", accountName);
+                getTokenByClientCredentials(accountName);
+            } else if (isTokenExpired(accountName)) {
+                log.info("账号 {} Token已过期，正在刷新...", accountName);
+                // 如果有refresh_token，使用refresh_token刷新，否则重新获取
+                if (credentials.getRefreshToken() != null && !credentials.getRefreshToken().isEmpty()) {
+                    refreshAccessToken(accountName);
+                } else {
+                    getTokenByClientCredentials(accountName);
+                }
+            }
+        }
+    }
+
+    /**
+     * 仅当账号当前的token仍是本次请求使用的token时才刷新
+     * 并发查询同一账号时，只有第一个发现token失效的线程真正刷新（refresh_token只能使用一次），
+     * 其余线程直接使用刷新后的token重试
+     */
+    private void refreshAccessTokenIfUnchanged(String accountName, String usedToken) {
+        BaiduConfig.AccountCredentials credentials = baiduConfig.getAccountCredentials(accountName);
+        if (credentials == null) {
+            return;
+        }
+        synchronized (credentials) {
+            if (Objects.equals(credentials.getAccessToken(), usedToken)) {
                 refreshAccessToken(accountName);
             } else {
-                getTokenByClientCredentials(accountName);
+                log.debug("账号 {} Token已被其他线程刷新，直接重试", accountName);
             }
         }
     }
@@ -234,7 +272,8 @@ public class BaiduTongjiService {
      * @return UV数据
      */
     public Integer getSiteUV(String accountName, String siteId, String startDate, String endDate) {
-        return getSiteUVInternal(accountName, siteId, startDate, endDate, 0);
+        UVResult result = getSiteUVInternal(accountName, siteId, startDate, endDate, 0);
+        return result != null ? result.total : null;
     }
 
     /**
@@ -245,9 +284,9 @@ public class BaiduTongjiService {
      * @param startDate   开始日期
      * @param endDate     结束日期
      * @param retryCount  重试次数（防止无限递归）
-     * @return UV数据
+     * @return UV数据（总数及按天明细）
      */
-    private Integer getSiteUVInternal(String accountName, String siteId, String startDate, String endDate, int retryCount) {
+    private UVResult getSiteUVInternal(String accountName, String siteId, String startDate, String endDate, int retryCount) {
         // 防止无限递归：最多重试1次
         if (retryCount > 1) {
             log.error("账号 {} Token刷新重试次数超限，放弃获取UV数据", accountName);
@@ -262,11 +301,12 @@ public class BaiduTongjiService {
             }
 
             ensureValidToken(accountName);
+            String accessToken = credentials.getAccessToken();
 
             String url = String.format(
                     "%s?access_token=%s&site_id=%s&start_date=%s&end_date=%s&metrics=visitor_count&method=overview/getTimeTrendRpt&gran=day&max_results=0",
                     baiduConfig.getApiUrl(),
-                    credentials.getAccessToken(),
+                    accessToken,
                     siteId,
                     startDate,
                     endDate
@@ -296,7 +336,7 @@ public class BaiduTongjiService {
                         }
 
                         log.warn("账号 {} Token过期/无效 (error_code={}), 尝试刷新... (第{}次重试)", accountName, errorCode, retryCount + 1);
-                        refreshAccessToken(accountName);
+                        refreshAccessTokenIfUnchanged(accountName, accessToken);
                         return getSiteUVInternal(accountName, siteId, startDate, endDate, retryCount + 1);
                     } else {
                         log.error("百度统计API返回错误: account={}, error_code={}, error_msg={}",
@@ -317,19 +357,32 @@ public class BaiduTongjiService {
                         JsonNode items = result.get("items");
                         // items[0] 是日期数组, items[1] 是UV数组
                         if (items.size() >= 2) {
+                            JsonNode dateArray = items.get(0);
                             JsonNode uvArray = items.get(1);
                             int totalUV = 0;
+                            // 按天记录UV，日期无法解析时不提供明细
+                            Map<LocalDate, Integer> daily = new TreeMap<>();
                             // 累加所有天的UV（跳过"--"等无效值）
-                            for (JsonNode uvNode : uvArray) {
+                            for (int i = 0; i < uvArray.size(); i++) {
+                                JsonNode uvNode = uvArray.get(i);
+                                int dayUV = 0;
                                 if (uvNode.isArray() && uvNode.size() > 0) {
                                     JsonNode value = uvNode.get(0);
                                     if (value.isNumber()) {
-                                        totalUV += value.asInt();
+                                        dayUV = value.asInt();
                                     }
                                 }
+                                totalUV += dayUV;
+
+                                LocalDate day = daily != null ? parseTrendDate(dateArray.get(i)) : null;
+                                if (day == null) {
+                                    daily = null;
+                                } else {
+                                    daily.merge(day, dayUV, Integer::sum);
+                                }
                             }
                             log.info("获取站点 {} (账号: {}) UV成功: {}", siteId, accountName, totalUV);
-                            return totalUV;
+                            return new UVResult(totalUV, daily);
                         }
                     }
                 }
@@ -350,15 +403,15 @@ public class BaiduTongjiService {
                                     // 第一个元素是总UV
                                     int uv = firstRow.get(0).asInt();
                                     log.info("获取站点 {} (账号: {}) UV成功: {}", siteId, accountName, uv);
-                                    return uv;
+                                    return new UVResult(uv, null);
                                 }
                             }
                         }
                     } else if (status == 200106 || status == 2) {
                         // Token无效，刷新后重试
                         log.warn("账号 {} Token可能无效，尝试刷新后重试...", accountName);
-                        refreshAccessToken(accountName);
-                        return getSiteUV(accountName, siteId, startDate, endDate);
+                        refreshAccessTokenIfUnchanged(accountName, accessToken);
+                        return getSiteUVInternal(accountName, siteId, startDate, endDate, retryCount + 1);
                     } else {
                         log.error("百度统计API返回错误: account={}, status={}, message={}",
                                 accountName,
@@ -451,29 +504,70 @@ public class BaiduTongjiService {
 
     /**
      * 获取站点累计UV（从海选期开始统计）
+     * 早于昨天的每日UV已定稿，首次查询后保存在本地，之后每次只向百度统计查询
+     * 第一个未定稿日期（通常是昨天）到今天的数据，查询成本不随活动天数增长
      *
      * @param accountName 百度统计账号标识
      * @param siteId      站点ID
      * @return 累计UV（从2025-10-25开始）
      */
     public Integer getCumulativeUVFromStart(String accountName, String siteId) {
-        // 海选期开始时间：2025年10月25日 0:00
-        LocalDate eventStartDate = LocalDate.of(2025, 10, 25);
         LocalDate today = LocalDate.now();
 
         // 如果今天早于活动开始日期，返回0（活动未开始）
-        if (today.isBefore(eventStartDate)) {
-            log.info("活动未开始: today={}, eventStart={}, 返回UV=0", today, eventStartDate);
+        if (today.isBefore(EVENT_START_DATE)) {
+            log.info("活动未开始: today={}, eventStart={}, 返回UV=0", today, EVENT_START_DATE);
             return 0;
         }
 
-        String startDateStr = eventStartDate.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        // 昨天的数据在百度统计中可能仍会修正，从前天开始的数据视为已定稿
+        LocalDate yesterday = today.minusDays(1);
+        NavigableMap<LocalDate, Integer> finalized = finalizedDailyUV.computeIfAbsent(
+                accountName + "|" + siteId, k -> new ConcurrentSkipListMap<>());
+
+        LocalDate fetchFrom = finalized.isEmpty() ? EVENT_START_DATE : finalized.lastKey().plusDays(1);
+        if (fetchFrom.isAfter(yesterday)) {
+            fetchFrom = yesterday;
+        }
+        if (fetchFrom.isBefore(EVENT_START_DATE)) {
+            fetchFrom = EVENT_START_DATE;
+        }
+
+        String startDateStr = fetchFrom.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
         String endDateStr = today.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
-        log.info("获取海选期累计UV: account={}, site={}, 日期范围={} 到 {}",
-                accountName, siteId, startDateStr, endDateStr);
+        log.info("获取海选期累计UV: account={}, site={}, 查询日期范围={} 到 {}, 已定稿 {} 天",
+                accountName, siteId, startDateStr, endDateStr, finalized.size());
+
+        UVResult result = getSiteUVInternal(accountName, siteId, startDateStr, endDateStr, 0);
+        if (result == null) {
+            return null;
+        }
+
+        if (result.daily == null) {
+            // 响应没有按天明细，无法增量累计，退化为查询整个活动期间
+            if (fetchFrom.equals(EVENT_START_DATE)) {
+                return result.total;
+            }
+            return getSiteUV(accountName, siteId,
+                    EVENT_START_DATE.format(DateTimeFormatter.ofPattern("yyyyMMdd")), endDateStr);
+        }
+
+        int recentUV = 0;
+        for (LocalDate day = fetchFrom; !day.isAfter(today); day = day.plusDays(1)) {
+            int dayUV = result.daily.getOrDefault(day, 0);
+            if (day.isBefore(yesterday)) {
+                finalized.put(day, dayUV);
+            } else {
+                recentUV += dayUV;
+            }
+        }
 
-        return getSiteUV(accountName, siteId, startDateStr, endDateStr);
+        int finalizedUV = 0;
+        for (Integer dayUV : finalized.values()) {
+            finalizedUV += dayUV;
+        }
+        return finalizedUV + recentUV;
     }
 
     /**
@@ -522,6 +616,39 @@ public class BaiduTongjiService {
         return uvMap;
     }
 
+    /**
+     * 解析趋势报表中的日期，格式如 ["2025/10/25"]，无法解析返回null
+     */
+    private LocalDate parseTrendDate(JsonNode dateNode) {
+        if (dateNode == null) {
+            return null;
+        }
+        JsonNode value = dateNode.isArray() && dateNode.size() > 0 ? dateNode.get(0) : dateNode;
+        String text = value.asText("").trim();
+        try {
+            return LocalDate.parse(text.replace('-', '/'), TREND_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * UV查询结果
+     */
+    private static class UVResult {
+        private final int total;
+
+        /**
+         * 按天明细（旧格式响应或日期无法解析时为null）
+         */
+        private final Map<LocalDate, Integer> daily;
+
+        UVResult(int total, Map<LocalDate, Integer> daily) {
+            this.total = total;
+            this.daily = daily;
+        }
+    }
+
     /**
      * 项目站点信息
      */
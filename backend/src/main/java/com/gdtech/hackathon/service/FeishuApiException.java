@@ -0,0 +1,27 @@
+package com.gdtech.hackathon.service;
+
+/**
+ * 飞书开放平台返回业务错误（响应中的code不为0）
+ * 保留飞书的错误码，调用方按错误码而不是错误信息判断错误类型
+ */
+public class FeishuApiException extends RuntimeException {
+
+    /**
+     * 多维表格：请求的字段名在表中不存在（FieldNameNotFound）
+     */
+    public static final int FIELD_NAME_NOT_FOUND = 1254045;
+
+    private final int code;
+
+    public FeishuApiException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    /**
+     * 飞书错误码
+     */
+    public int getCode() {
+        return code;
+    }
+}
@@ -1,17 +1,31 @@
 package com.gdtech.hackathon.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gdtech.hackathon.config.FeishuConfig;
+import com.gdtech.hackathon.model.row.FieldValues;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * 飞书API服务
+ * 读取记录提供非阻塞（Mono）版本，阻塞版本只是在其上调用block()
  */
 @Slf4j
 @Service
@@ -24,10 +38,23 @@ public class FeishuService {
     // 飞书 API 基础URL
     private static final String FEISHU_API_BASE = "https://open.feishu.cn/open-apis";
 
-    public FeishuService(FeishuConfig feishuConfig, ObjectMapper objectMapper) {
+    // 多维表格批量新增/更新单次请求的记录数上限
+    private static final int BATCH_LIMIT = 500;
+
+    // 防止无限循环，最多查询100页（50000条记录）
+    private static final int MAX_PAGES = 100;
+
+    /**
+     * 进程内缓存的 tenant_access_token 及其过期时间
+     */
+    private volatile String cachedToken;
+    private volatile long cachedTokenExpiresAt;
+
+    public FeishuService(FeishuConfig feishuConfig, ObjectMapper objectMapper, WebClient.Builder webClientBuilder) {
         this.feishuConfig = feishuConfig;
         this.objectMapper = objectMapper;
-        this.webClient = WebClient.builder()
+        // 使用共享的上游HTTP客户端（连接池、HTTP/2、gzip、超时），见 HttpClientConfig
+        this.webClient = webClientBuilder
                 .baseUrl(FEISHU_API_BASE)
                 .build();
     }
@@ -39,32 +66,52 @@ public class FeishuService {
     @Cacheable(value = "feishuToken", unless = "#result == null")
     public String getTenantAccessToken() {
         try {
-            Map<String, String> body = new HashMap<>();
-            body.put("app_id", feishuConfig.getAppId());
-            body.put("app_secret", feishuConfig.getAppSecret());
-
-            String response = webClient.post()
-                    .uri("/auth/v3/tenant_access_token/internal")
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode jsonNode = objectMapper.readTree(response);
-            if (jsonNode.get("code").asInt() == 0) {
-                String token = jsonNode.get("tenant_access_token").asText();
-                log.debug("获取飞书token成功: {}", token);
-                return token;
-            } else {
-                log.error("获取飞书token失败: {}", response);
-                throw new RuntimeException("获取飞书token失败: " + jsonNode.get("msg").asText());
-            }
+            return tenantAccessToken().block();
         } catch (Exception e) {
             log.error("获取飞书token异常", e);
             throw new RuntimeException("获取飞书token异常", e);
         }
     }
 
+    /**
+     * 获取 tenant_access_token（非阻塞）
+     * 服务内部调用不经过Spring缓存代理，这里在进程内缓存token，到期前5分钟重新获取
+     */
+    public Mono<String> tenantAccessToken() {
+        String cached = cachedToken;
+        if (cached != null && System.currentTimeMillis() < cachedTokenExpiresAt) {
+            return Mono.just(cached);
+        }
+
+        Map<String, String> body = new HashMap<>();
+        body.put("app_id", feishuConfig.getAppId());
+        body.put("app_secret", feishuConfig.getAppSecret());
+
+        return webClient.post()
+                .uri("/auth/v3/tenant_access_token/internal")
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(String.class)
+                .<String>handle((response, sink) -> {
+                    try {
+                        JsonNode jsonNode = objectMapper.readTree(response);
+                        if (jsonNode.get("code").asInt() == 0) {
+                            String token = jsonNode.get("tenant_access_token").asText();
+                            long expire = jsonNode.path("expire").asLong(7200);
+                            cachedTokenExpiresAt = System.currentTimeMillis() + Math.max(0, expire - 300) * 1000;
+                            cachedToken = token;
+                            log.debug("获取飞书token成功: {}", token);
+                            sink.next(token);
+                        } else {
+                            log.error("获取飞书token失败: {}", response);
+                            sink.error(new RuntimeException("获取飞书token失败: " + jsonNode.get("msg").asText()));
+                        }
+                    } catch (IOException e) {
+                        sink.error(new RuntimeException("获取飞书token异常", e));
+                    }
+                });
+    }
+
     /**
      * 查询多维表格记录列表
      *
@@ -72,22 +119,60 @@ public class FeishuService {
      * @return 记录列表
      */
     public List<Map<String, Object>> listRecords(String tableId) {
-        return listRecords(tableId, null, 500);
+        return listRecords(tableId, null, 500, null);
+    }
+
+    /**
+     * 查询多维表格记录列表，只返回指定字段
+     *
+     * @param tableId    表ID
+     * @param fieldNames 需要返回的字段名，null表示返回所有字段
+     * @return 记录列表
+     */
+    public List<Map<String, Object>> listRecords(String tableId, List<String> fieldNames) {
+        return listRecords(tableId, null, 500, fieldNames);
     }
 
     /**
      * 查询多维表格记录列表（带过滤条件）
      *
-     * @param tableId  表ID
-     * @param filter   过滤条件（目前未使用，保留用于未来扩展）
-     * @param pageSize 分页大小
+     * @param tableId    表ID
+     * @param filter     过滤条件（目前未使用，保留用于未来扩展）
+     * @param pageSize   分页大小
+     * @param fieldNames 需要返回的字段名，null表示返回所有字段
+     * @return 记录列表
+     */
+    public List<Map<String, Object>> listRecords(String tableId, String filter, int pageSize, List<String> fieldNames) {
+        return listRecordsAsync(tableId, filter, pageSize, fieldNames).block();
+    }
+
+    /**
+     * 查询多维表格记录列表，只返回指定字段（非阻塞）
+     *
+     * @param tableId    表ID
+     * @param fieldNames 需要返回的字段名，null表示返回所有字段
+     * @return 记录列表
+     */
+    public Mono<List<Map<String, Object>>> listRecordsAsync(String tableId, List<String> fieldNames) {
+        return listRecordsAsync(tableId, null, 500, fieldNames);
+    }
+
+    /**
+     * 查询多维表格记录列表（非阻塞）
+     * 获取token、逐页请求和解码全部在响应回调中完成，不占用调用线程
+     *
+     * @param tableId    表ID
+     * @param filter     过滤条件（目前未使用，保留用于未来扩展）
+     * @param pageSize   分页大小
+     * @param fieldNames 需要返回的字段名，null表示返回所有字段
      * @return 记录列表
      */
-    public List<Map<String, Object>> listRecords(String tableId, String filter, int pageSize) {
+    public Mono<List<Map<String, Object>>> listRecordsAsync(String tableId, String filter, int pageSize,
+                                                            List<String> fieldNames) {
         // 参数校验
         if (tableId == null || tableId.trim().isEmpty()) {
             log.error("tableId不能为空");
-            return Collections.emptyList();
+            return Mono.just(Collections.emptyList());
         }
 
         // 限制单次查询最大分页大小，防止飞书API超时
@@ -100,122 +185,227 @@ public class FeishuService {
             pageSize = 100;
         }
 
-        try {
-            String token = getTenantAccessToken();
-            String appToken = feishuConfig.getBase().getAppToken();
+        String appToken = feishuConfig.getBase().getAppToken();
+        if (appToken == null || appToken.isEmpty()) {
+            log.error("飞书应用令牌未配置");
+            return Mono.just(Collections.emptyList());
+        }
 
-            if (token == null || token.isEmpty()) {
-                log.error("无法获取飞书访问令牌");
-                return Collections.emptyList();
-            }
-            if (appToken == null || appToken.isEmpty()) {
-                log.error("飞书应用令牌未配置");
-                return Collections.emptyList();
+        String baseUri = String.format("/bitable/v1/apps/%s/tables/%s/records?page_size=%d",
+                appToken, tableId, pageSize);
+        if (filter != null && !filter.trim().isEmpty()) {
+            baseUri += "&filter=" + java.net.URLEncoder.encode(filter, java.nio.charset.StandardCharsets.UTF_8);
+        }
+        if (fieldNames != null && !fieldNames.isEmpty()) {
+            // 只请求需要的字段，减少响应体积和解析开销
+            try {
+                baseUri += "&field_names=" + java.net.URLEncoder.encode(
+                        objectMapper.writeValueAsString(fieldNames), java.nio.charset.StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return Mono.error(new RuntimeException("查询飞书表格记录异常: " + e.getMessage(), e));
             }
+        }
+        String listUri = baseUri;
 
-            List<Map<String, Object>> allRecords = new ArrayList<>();
-            String pageToken = null;
-            boolean hasMore = true;
-            int pageCount = 0;
-            int maxPages = 100; // 防止无限循环，最多查询100页（50000条记录）
+        return tenantAccessToken()
+                .flatMap(token -> {
+                    if (token == null || token.isEmpty()) {
+                        log.error("无法获取飞书访问令牌");
+                        return Mono.just(Collections.<Map<String, Object>>emptyList());
+                    }
+                    return fetchAllPages(tableId, pageToken -> {
+                        String uri = listUri;
+                        if (pageToken != null && !pageToken.isEmpty()) {
+                            uri += "&page_token=" + pageToken;
+                        }
+                        return webClient.get()
+                                .uri(uri)
+                                .header("Authorization", "Bearer " + token)
+                                .retrieve()
+                                .bodyToMono(byte[].class);
+                    });
+                })
+                .onErrorMap(e -> {
+                    log.error("查询飞书表格记录异常，tableId={}", tableId, e);
+                    // 飞书业务错误保留错误码，由调用方按错误码处理
+                    return e instanceof FeishuApiException ? e
+                            : new RuntimeException("查询飞书表格记录异常: " + e.getMessage(), e);
+                });
+    }
 
-            while (hasMore && pageCount < maxPages) {
-                pageCount++;
+    /**
+     * 查询指定时间之后新增或修改过的记录（增量同步）
+     *
+     * @see #searchRecordsModifiedSinceAsync(String, String, long, List)
+     */
+    public List<Map<String, Object>> searchRecordsModifiedSince(String tableId, String modifiedField, long sinceMillis,
+                                                               List<String> fieldNames) {
+        return searchRecordsModifiedSinceAsync(tableId, modifiedField, sinceMillis, fieldNames).block();
+    }
 
-                String uri = String.format("/bitable/v1/apps/%s/tables/%s/records?page_size=%d",
-                        appToken, tableId, pageSize);
+    /**
+     * 查询指定时间之后新增或修改过的记录（增量同步，非阻塞）
+     * 使用多维表格 search 接口按"修改时间"字段过滤，并按该字段升序返回
+     * 飞书的日期过滤（ExactDate）按天比较，因此服务端取水位当天及之后修改的记录，再按毫秒时间戳在本地过滤
+     *
+     * @param tableId       表ID
+     * @param modifiedField 表中"修改时间"类型字段的名称
+     * @param sinceMillis   水位（毫秒时间戳），返回修改时间晚于该时间的记录
+     * @param fieldNames    需要返回的字段名，null表示返回所有字段
+     * @return 记录列表
+     */
+    public Mono<List<Map<String, Object>>> searchRecordsModifiedSinceAsync(String tableId, String modifiedField,
+                                                                           long sinceMillis, List<String> fieldNames) {
+        if (tableId == null || tableId.trim().isEmpty()) {
+            log.error("tableId不能为空");
+            return Mono.just(Collections.emptyList());
+        }
 
-                if (pageToken != null && !pageToken.isEmpty()) {
-                    uri += "&page_token=" + pageToken;
-                }
-                if (filter != null && !filter.trim().isEmpty()) {
-                    uri += "&filter=" + java.net.URLEncoder.encode(filter, java.nio.charset.StandardCharsets.UTF_8);
-                }
+        String appToken = feishuConfig.getBase().getAppToken();
 
-                String response = webClient.get()
-                        .uri(uri)
-                        .header("Authorization", "Bearer " + token)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .block();
+        Map<String, Object> condition = new LinkedHashMap<>();
+        condition.put("field_name", modifiedField);
+        condition.put("operator", "isGreaterEqual");
+        condition.put("value", Arrays.asList("ExactDate", String.valueOf(sinceMillis)));
 
-                if (response == null || response.isEmpty()) {
-                    log.error("飞书API返回空响应");
-                    break;
-                }
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("conjunction", "and");
+        filter.put("conditions", Collections.singletonList(condition));
 
-                JsonNode jsonNode = objectMapper.readTree(response);
-                JsonNode codeNode = jsonNode.get("code");
-                if (codeNode == null) {
-                    log.error("飞书API响应缺少code字段: {}", response);
-                    break;
-                }
+        Map<String, Object> sort = new LinkedHashMap<>();
+        sort.put("field_name", modifiedField);
+        sort.put("desc", false);
 
-                if (codeNode.asInt() == 0) {
-                    JsonNode data = jsonNode.get("data");
-                    if (data == null) {
-                        log.warn("飞书API返回的data字段为空");
-                        break;
-                    }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("filter", filter);
+        body.put("sort", Collections.singletonList(sort));
+        if (fieldNames != null && !fieldNames.isEmpty()) {
+            body.put("field_names", fieldNames);
+        }
+
+        String searchUri = String.format("/bitable/v1/apps/%s/tables/%s/records/search?page_size=500",
+                appToken, tableId);
 
-                    JsonNode items = data.get("items");
-                    if (items != null && items.isArray()) {
-                        items.forEach(item -> {
-                            try {
-                                Map<String, Object> record = new HashMap<>();
-                                JsonNode recordIdNode = item.get("record_id");
-                                if (recordIdNode != null) {
-                                    record.put("record_id", recordIdNode.asText());
-                                }
-
-                                JsonNode fields = item.get("fields");
-                                if (fields != null && fields.isObject()) {
-                                    fields.fields().forEachRemaining(entry -> {
-                                        try {
-                                            record.put(entry.getKey(), convertJsonNode(entry.getValue()));
-                                        } catch (Exception e) {
-                                            log.warn("转换字段{}失败: {}", entry.getKey(), e.getMessage());
-                                        }
-                                    });
-                                }
-
-                                allRecords.add(record);
-                            } catch (Exception e) {
-                                log.warn("处理记录失败: {}", e.getMessage());
-                            }
-                        });
+        return tenantAccessToken()
+                .flatMap(token -> fetchAllPages(tableId, pageToken -> {
+                    String uri = searchUri;
+                    if (pageToken != null && !pageToken.isEmpty()) {
+                        uri += "&page_token=" + pageToken;
+                    }
+                    return webClient.post()
+                            .uri(uri)
+                            .header("Authorization", "Bearer " + token)
+                            .bodyValue(body)
+                            .retrieve()
+                            .bodyToMono(byte[].class);
+                }))
+                .map(records -> {
+                    List<Map<String, Object>> modified = new ArrayList<>(records.size());
+                    for (Map<String, Object> record : records) {
+                        if (FieldValues.getLong(record, modifiedField) > sinceMillis) {
+                            modified.add(record);
+                        }
                     }
+                    log.debug("表 {} 增量查询到 {} 条当天及之后修改的记录，其中 {} 条在 {} 之后修改",
+                            tableId, records.size(), modified.size(), sinceMillis);
+                    return modified;
+                })
+                .onErrorMap(e -> {
+                    log.error("增量查询飞书表格记录异常，tableId={}", tableId, e);
+                    return e instanceof FeishuApiException ? e
+                            : new RuntimeException("增量查询飞书表格记录异常: " + e.getMessage(), e);
+                });
+    }
 
-                    JsonNode hasMoreNode = data.get("has_more");
-                    hasMore = hasMoreNode != null && hasMoreNode.asBoolean();
+    /**
+     * 逐页拉取记录直到没有更多数据
+     * 流水线方式：先取得本页的分页信息并立即发出下一页请求，再解码本页记录
+     *
+     * @param tableId     表ID（用于日志）
+     * @param pageFetcher page_token -> 该页的请求（首页传入null）
+     * @return 所有页的记录
+     */
+    private Mono<List<Map<String, Object>>> fetchAllPages(String tableId, Function<String, Mono<byte[]>> pageFetcher) {
+        return Mono.defer(() -> readPages(tableId, pageFetcher, pageFetcher.apply(null).toFuture(),
+                new ArrayList<>(), 1));
+    }
 
-                    if (hasMore && data.has("page_token")) {
-                        JsonNode pageTokenNode = data.get("page_token");
-                        pageToken = pageTokenNode != null ? pageTokenNode.asText() : null;
-                        if (pageToken == null || pageToken.isEmpty()) {
-                            log.warn("飞书API返回has_more=true但page_token为空，停止分页");
-                            hasMore = false;
-                        }
-                    } else {
-                        hasMore = false;
+    /**
+     * 等待一页响应后处理该页；有下一页时（请求已发出）继续处理下一页
+     */
+    private Mono<List<Map<String, Object>>> readPages(String tableId, Function<String, Mono<byte[]>> pageFetcher,
+                                                      CompletableFuture<byte[]> pending,
+                                                      List<Map<String, Object>> allRecords, int pageCount) {
+        // 取消订阅时一并取消已发出的下一页请求
+        return Mono.fromFuture(pending)
+                .doOnCancel(() -> pending.cancel(true))
+                .<List<Map<String, Object>>>flatMap(response -> {
+                    CompletableFuture<byte[]> next;
+                    try {
+                        next = readPage(pageFetcher, response, allRecords, pageCount);
+                    } catch (IOException e) {
+                        return Mono.error(e);
                     }
-                } else {
-                    String msg = jsonNode.has("msg") ? jsonNode.get("msg").asText() : "未知错误";
-                    log.error("查询飞书表格记录失败(code={}): {}", codeNode.asInt(), msg);
-                    throw new RuntimeException("查询飞书表格记录失败: " + msg);
-                }
-            }
+                    if (next == null) {
+                        return Mono.just(finishPages(tableId, allRecords, pageCount));
+                    }
+                    return readPages(tableId, pageFetcher, next, allRecords, pageCount + 1);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("飞书API返回空响应");
+                    return finishPages(tableId, allRecords, pageCount);
+                }));
+    }
+
+    /**
+     * 处理一页响应：把记录追加到allRecords，有下一页时立即发出请求
+     * 处理失败时取消已发出的下一页请求
+     *
+     * @return 下一页的请求，没有下一页返回null
+     */
+    private CompletableFuture<byte[]> readPage(Function<String, Mono<byte[]>> pageFetcher, byte[] response,
+                                               List<Map<String, Object>> allRecords, int pageCount) throws IOException {
+        if (response.length == 0) {
+            log.error("飞书API返回空响应");
+            return null;
+        }
 
-            if (pageCount >= maxPages) {
-                log.warn("查询表{}已达到最大分页数{}，可能存在更多数据未获取", tableId, maxPages);
+        RecordPage page = new RecordPage(pageCount < MAX_PAGES
+                ? pageToken -> pageFetcher.apply(pageToken).toFuture() : null);
+        try {
+            parseRecordPage(response, page);
+            if (page.code == null) {
+                log.error("飞书API响应缺少code字段");
+                page.cancelNextPage();
+                return null;
+            }
+            if (page.code != 0) {
+                String msg = page.msg != null ? page.msg : "未知错误";
+                log.error("查询飞书表格记录失败(code={}): {}", page.code, msg);
+                throw new FeishuApiException(page.code, "查询飞书表格记录失败: " + msg);
             }
+        } catch (IOException | RuntimeException e) {
+            page.cancelNextPage();
+            throw e;
+        }
+        if (!page.hasData) {
+            log.warn("飞书API返回的data字段为空");
+            return null;
+        }
+        if (page.hasMore && (page.pageToken == null || page.pageToken.isEmpty())) {
+            log.warn("飞书API返回has_more=true但page_token为空，停止分页");
+        }
 
-            log.debug("从表 {} 查询到 {} 条记录（共{}页）", tableId, allRecords.size(), pageCount);
-            return allRecords;
-        } catch (Exception e) {
-            log.error("查询飞书表格记录异常，tableId={}", tableId, e);
-            throw new RuntimeException("查询飞书表格记录异常: " + e.getMessage(), e);
+        allRecords.addAll(page.records);
+        return page.next;
+    }
+
+    private List<Map<String, Object>> finishPages(String tableId, List<Map<String, Object>> allRecords, int pageCount) {
+        if (pageCount >= MAX_PAGES) {
+            log.warn("查询表{}已达到最大分页数{}，可能存在更多数据未获取", tableId, MAX_PAGES);
         }
+        log.debug("从表 {} 查询到 {} 条记录（共{}页）", tableId, allRecords.size(), pageCount);
+        return allRecords;
     }
 
     /**
@@ -293,28 +483,366 @@ public class FeishuService {
     }
 
     /**
-     * 转换 JsonNode 为Java对象
+     * 批量新增多维表格记录（不做幂等）
+     *
+     * @see #batchCreateRecords(String, List, String)
      */
-    private Object convertJsonNode(JsonNode node) {
-        if (node.isNull()) {
-            return null;
-        } else if (node.isBoolean()) {
-            return node.asBoolean();
-        } else if (node.isInt() || node.isLong()) {
-            return node.asLong();
-        } else if (node.isDouble() || node.isFloat()) {
-            return node.asDouble();
-        } else if (node.isArray()) {
-            List<Object> list = new ArrayList<>();
-            node.forEach(item -> list.add(convertJsonNode(item)));
-            return list;
-        } else if (node.isObject()) {
-            Map<String, Object> map = new HashMap<>();
-            node.fields().forEachRemaining(entry ->
-                map.put(entry.getKey(), convertJsonNode(entry.getValue())));
-            return map;
-        } else {
-            return node.asText();
+    public List<String> batchCreateRecords(String tableId, List<Map<String, Object>> fieldsList) {
+        return batchCreateRecords(tableId, fieldsList, null);
+    }
+
+    /**
+     * 批量新增多维表格记录
+     * 按飞书单次批量上限（500条）分组请求；传入幂等键时，每组请求带上由幂等键和组序号派生的 client_token，
+     * 飞书已提交但响应丢失时，用同一幂等键重试同一批记录会返回首次新增的记录而不会重复新增
+     *
+     * @param tableId     表ID
+     * @param fieldsList  每条记录的字段数据
+     * @param clientToken 幂等键（任意字符串），null表示不做幂等
+     * @return 新记录的record_id，顺序与传入顺序一致
+     */
+    public List<String> batchCreateRecords(String tableId, List<Map<String, Object>> fieldsList, String clientToken) {
+        List<String> recordIds = new ArrayList<>(fieldsList.size());
+        for (int from = 0; from < fieldsList.size(); from += BATCH_LIMIT) {
+            List<Map<String, Object>> chunk = fieldsList.subList(from, Math.min(from + BATCH_LIMIT, fieldsList.size()));
+            List<Map<String, Object>> records = new ArrayList<>(chunk.size());
+            for (Map<String, Object> fields : chunk) {
+                records.add(Collections.singletonMap("fields", fields));
+            }
+
+            String chunkToken = clientToken != null ? deriveClientToken(clientToken + "#" + from) : null;
+            JsonNode data = postBatch(tableId, "batch_create", records, "批量新增", chunkToken);
+            JsonNode created = data.path("records");
+            if (created.size() != chunk.size()) {
+                throw new RuntimeException("批量新增飞书表格记录返回数量不一致: 期望 "
+                        + chunk.size() + "，实际 " + created.size());
+            }
+            for (JsonNode record : created) {
+                recordIds.add(record.get("record_id").asText());
+            }
+        }
+        log.debug("批量新增飞书表格记录成功: {} 条", recordIds.size());
+        return recordIds;
+    }
+
+    /**
+     * 批量更新多维表格记录
+     *
+     * @see #batchUpdateRecords(String, Map, Consumer)
+     */
+    public void batchUpdateRecords(String tableId, Map<String, Map<String, Object>> updates) {
+        batchUpdateRecords(tableId, updates, written -> { });
+    }
+
+    /**
+     * 批量更新多维表格记录
+     * 按飞书单次批量上限（500条）分组请求，每组写入成功后立即回调；
+     * 某一组失败时抛出异常，之前已回调的组已经写入飞书，调用方可据此只重试未写入的记录
+     *
+     * @param tableId        表ID
+     * @param updates        记录ID -> 需要更新的字段
+     * @param onChunkWritten 每组写入成功后回调，参数为该组的 记录ID -> 字段
+     */
+    public void batchUpdateRecords(String tableId, Map<String, Map<String, Object>> updates,
+                                   Consumer<Map<String, Map<String, Object>>> onChunkWritten) {
+        List<Map<String, Object>> records = new ArrayList<>(Math.min(updates.size(), BATCH_LIMIT));
+        Map<String, Map<String, Object>> chunk = new LinkedHashMap<>();
+        int written = 0;
+        Iterator<Map.Entry<String, Map<String, Object>>> it = updates.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Map<String, Object>> entry = it.next();
+            Map<String, Object> record = new HashMap<>();
+            record.put("record_id", entry.getKey());
+            record.put("fields", entry.getValue());
+            records.add(record);
+            chunk.put(entry.getKey(), entry.getValue());
+            if (records.size() == BATCH_LIMIT || !it.hasNext()) {
+                postBatch(tableId, "batch_update", records, "批量更新", null);
+                written += records.size();
+                onChunkWritten.accept(chunk);
+                records = new ArrayList<>(Math.min(updates.size() - written, BATCH_LIMIT));
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        log.debug("批量更新飞书表格记录成功: {} 条", written);
+    }
+
+    /**
+     * 由幂等键派生固定的 client_token（飞书要求 uuid v4 格式）
+     */
+    static String deriveClientToken(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            hash[6] = (byte) ((hash[6] & 0x0f) | 0x40);
+            hash[8] = (byte) ((hash[8] & 0x3f) | 0x80);
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("生成client_token失败", e);
+        }
+    }
+
+    /**
+     * 调用批量接口，返回响应中的data节点
+     * 飞书返回错误码时抛出 {@link FeishuApiException}（请求已被拒绝），其他异常表示结果未知
+     *
+     * @param clientToken 幂等的 client_token，null表示不带
+     */
+    private JsonNode postBatch(String tableId, String action, List<Map<String, Object>> records, String actionName,
+                               String clientToken) {
+        try {
+            String token = getTenantAccessToken();
+            String appToken = feishuConfig.getBase().getAppToken();
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("records", records);
+
+            String uri = String.format("/bitable/v1/apps/%s/tables/%s/records/%s", appToken, tableId, action);
+            if (clientToken != null) {
+                uri += "?client_token=" + clientToken;
+            }
+            String response = webClient.post()
+                    .uri(uri)
+                    .header("Authorization", "Bearer " + token)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block();
+
+            JsonNode jsonNode = objectMapper.readTree(response);
+            if (jsonNode.get("code").asInt() == 0) {
+                return jsonNode.path("data");
+            } else {
+                log.error("{}飞书表格记录失败: {}", actionName, response);
+                throw new FeishuApiException(jsonNode.get("code").asInt(),
+                        actionName + "飞书表格记录失败: " + jsonNode.path("msg").asText());
+            }
+        } catch (WebClientResponseException e) {
+            // 4xx 且响应体带错误码：飞书明确拒绝了请求（如字段值非法），没有写入任何记录
+            JsonNode error = readErrorBody(e);
+            if (e.getStatusCode().is4xxClientError() && error.path("code").asInt(0) != 0) {
+                log.error("{}飞书表格记录失败: {}", actionName, e.getResponseBodyAsString());
+                throw new FeishuApiException(error.path("code").asInt(),
+                        actionName + "飞书表格记录失败: " + error.path("msg").asText());
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("{}飞书表格记录异常", actionName, e);
+            throw new RuntimeException(actionName + "飞书表格记录异常", e);
+        }
+    }
+
+    private JsonNode readErrorBody(WebClientResponseException e) {
+        try {
+            return objectMapper.readTree(e.getResponseBodyAsByteArray());
+        } catch (IOException | RuntimeException ignored) {
+            return objectMapper.missingNode();
+        }
+    }
+
+    /**
+     * 解析一页记录列表响应，分页信息和记录写入page
+     * 响应结构：{"code":0,"data":{"has_more":..,"items":[{"record_id":..,"fields":{..}}],"page_token":..,"total":..},"msg":"success"}
+     * 飞书把 page_token 放在 items 之后，因此先扫一遍跳过 items 取得 code 和分页信息并发出下一页请求，
+     * 再解码本页记录；跳过 items 只做词法扫描，不创建对象，下一页的网络请求与本页记录解码重叠
+     */
+    void parseRecordPage(byte[] body, RecordPage page) throws IOException {
+        boolean hasItems = parseRecordPageHeader(body, page);
+        page.requestNextPageIfReady();
+        if (hasItems && page.code != null && page.code == 0) {
+            parseRecordPageItems(body, page);
+        }
+    }
+
+    /**
+     * 读取 code、msg 和 data 中的分页信息，跳过 items
+     *
+     * @return data 中是否有 items 数组
+     */
+    private boolean parseRecordPageHeader(byte[] body, RecordPage page) throws IOException {
+        boolean hasItems = false;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "code" -> page.code = token.isNumeric() ? parser.getIntValue() : null;
+                    case "msg" -> page.msg = parser.getValueAsString();
+                    case "data" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            page.hasData = true;
+                            hasItems = parseRecordPageCursor(parser, page);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return hasItems;
+    }
+
+    private boolean parseRecordPageCursor(JsonParser parser, RecordPage page) throws IOException {
+        boolean hasItems = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "has_more" -> page.hasMore = token == JsonToken.VALUE_TRUE;
+                case "page_token" -> page.pageToken = parser.getValueAsString();
+                case "items" -> {
+                    hasItems = token == JsonToken.START_ARRAY;
+                    parser.skipChildren();
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return hasItems;
+    }
+
+    /**
+     * 定位到 data.items 并逐条解码记录
+     */
+    private void parseRecordPageItems(byte[] body, RecordPage page) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (!"data".equals(name) || token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String dataName = parser.getCurrentName();
+                    JsonToken dataToken = parser.nextToken();
+                    if (!"items".equals(dataName) || dataToken != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        try {
+                            page.records.add(parseRecordItem(parser));
+                        } catch (RuntimeException e) {
+                            log.warn("处理记录失败: {}", e.getMessage());
+                        }
+                    }
+                    return;
+                }
+                return;
+            }
+        }
+    }
+
+    private Map<String, Object> parseRecordItem(JsonParser parser) throws IOException {
+        Map<String, Object> record = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("record_id".equals(name)) {
+                record.put("record_id", parser.getValueAsString());
+            } else if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    record.put(fieldName, readValue(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return record;
+    }
+
+    /**
+     * 读取当前token对应的值为Java对象（与原JsonNode转换规则一致）
+     */
+    private Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+                // 超出long范围的整数按文本返回（与原JsonNode转换一致），避免解析中断导致整页失败
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                        ? parser.getText() : parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case START_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            }
+            case START_OBJECT: {
+                Map<String, Object> map = new HashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, readValue(parser));
+                }
+                return map;
+            }
+            default:
+                return parser.getText();
+        }
+    }
+
+    /**
+     * 单页记录列表解析结果
+     */
+    static class RecordPage {
+        private Integer code;
+        private String msg;
+        private boolean hasData;
+        private boolean hasMore;
+        private String pageToken;
+        private final List<Map<String, Object>> records = new ArrayList<>();
+
+        /**
+         * page_token -> 下一页请求，为空表示已达到最大分页数
+         */
+        private final Function<String, CompletableFuture<byte[]>> nextPageRequester;
+        private CompletableFuture<byte[]> next;
+
+        RecordPage(Function<String, CompletableFuture<byte[]>> nextPageRequester) {
+            this.nextPageRequester = nextPageRequester;
+        }
+
+        List<Map<String, Object>> getRecords() {
+            return records;
+        }
+
+        CompletableFuture<byte[]> getNext() {
+            return next;
+        }
+
+        /**
+         * 分页信息已齐全且本页成功时发出下一页请求（只发一次）
+         */
+        void requestNextPageIfReady() {
+            if (next == null && nextPageRequester != null && code != null && code == 0
+                    && hasMore && pageToken != null && !pageToken.isEmpty()) {
+                next = nextPageRequester.apply(pageToken);
+            }
+        }
+
+        void cancelNextPage() {
+            if (next != null) {
+                next.cancel(true);
+                next = null;
+            }
         }
     }
 }
@@ -0,0 +1,792 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.FeishuConfig;
+import com.gdtech.hackathon.config.HackathonProperties;
+import com.gdtech.hackathon.model.row.ConfigRow;
+import com.gdtech.hackathon.model.row.FieldValues;
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import com.gdtech.hackathon.model.row.InvestorRow;
+import com.gdtech.hackathon.model.row.ProjectRow;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 飞书表格本地物化存储
+ * 启动时加载项目、投资人、投资记录、配置四张表，后台定期刷新，
+ * 本地写操作（投资、UV同步等）直接合并到内存副本中，读接口全部从内存查询
+ * 每个快照在构建时把记录解码为类型化的行对象，业务代码不再按字段名逐行取值
+ * 表中有"修改时间"字段时，后台刷新只拉取上次水位之后修改过的记录并按record_id合并，定期全量刷新一次
+ * 加载时只请求行解码用到的字段，其他列不下载
+ */
+@Slf4j
+@Service
+public class FeishuTableStore {
+
+    private final FeishuService feishuService;
+    private final FeishuConfig feishuConfig;
+    private final HackathonProperties.Store storeProperties;
+
+    /**
+     * 表ID -> 表快照（不可变列表，整体替换）
+     */
+    private final Map<String, TableSnapshot> tables = new ConcurrentHashMap<>();
+
+    /**
+     * 表ID -> 本地写入序号，用于判断刷新期间是否发生过本地写入
+     */
+    private final Map<String, AtomicLong> mutationSeqs = new ConcurrentHashMap<>();
+
+    /**
+     * 表ID -> 最近的本地写入（按序号递增），刷新结果落地后重放拉取开始之后的写入；只在表锁内访问
+     */
+    private final Map<String, Deque<LocalWrite>> localWrites = new ConcurrentHashMap<>();
+
+    /**
+     * 表ID -> 已落地的刷新开始时的本地写入序号；开始得更早的刷新结果比当前副本旧，不再落地；只在表锁内访问
+     */
+    private final Map<String, Long> landedSeqs = new ConcurrentHashMap<>();
+
+    /**
+     * 每张表保留的本地写入条数上限（正常情况下每次刷新落地后即清理）
+     */
+    private static final int MAX_LOCAL_WRITES = 4096;
+
+    /**
+     * 缺少部分字段的表（如通过脚本按需添加的剩余额度、百度统计账号，或没有"修改时间"字段），加载时请求所有字段
+     */
+    private final Set<String> unprojectedTables = ConcurrentHashMap.newKeySet();
+
+    public FeishuTableStore(FeishuService feishuService, FeishuConfig feishuConfig,
+                            HackathonProperties hackathonProperties) {
+        this.feishuService = feishuService;
+        this.feishuConfig = feishuConfig;
+        this.storeProperties = hackathonProperties.getStore();
+    }
+
+    /**
+     * 服务启动时预加载所有表
+     * 加载失败不阻塞启动，首次读取时会再次尝试加载
+     */
+    @PostConstruct
+    public void initialize() {
+        try {
+            refreshAll();
+        } catch (Exception e) {
+            log.warn("预加载飞书表格失败，将在首次访问时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 后台定期刷新所有表（默认30秒）
+     */
+    @Scheduled(fixedDelayString = "${hackathon.store.refresh-interval:30}000",
+            initialDelayString = "${hackathon.store.refresh-interval:30}000")
+    public void scheduledRefresh() {
+        try {
+            refreshAll();
+        } catch (Exception e) {
+            log.error("后台刷新飞书表格失败", e);
+        }
+    }
+
+    /**
+     * 并发刷新所有表，耗时取决于最慢的一张表而不是四张表之和
+     * 各表的请求以非阻塞方式组合，等待期间不占用线程，只有调用线程等待全部完成
+     */
+    public void refreshAll() {
+        Flux.fromIterable(managedTableIds())
+                .flatMap(tableId -> refreshAsync(tableId)
+                        .onErrorResume(e -> {
+                            log.warn("刷新表 {} 失败: {}", tableId, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then()
+                .block();
+    }
+
+    /**
+     * 刷新指定表：能增量刷新时只拉取修改过的记录，否则重新下载整张表
+     */
+    public void refresh(String tableId) {
+        if (tableId == null || tableId.isEmpty()) {
+            return;
+        }
+        refreshAsync(tableId).block();
+    }
+
+    private Mono<Void> refreshAsync(String tableId) {
+        TableSnapshot current = tables.get(tableId);
+        String modifiedField = storeProperties.getModifiedTimeField();
+        if (current != null && current.getWatermark() > 0
+                && modifiedField != null && !modifiedField.isEmpty()
+                && System.currentTimeMillis() - current.getLoadedAt() < storeProperties.getFullRefreshInterval() * 1000L) {
+            return refreshIncremental(tableId, modifiedField, current)
+                    .onErrorResume(e -> {
+                        log.warn("增量刷新表 {} 失败，改为全量刷新: {}", tableId, e.getMessage());
+                        return refreshFull(tableId);
+                    });
+        }
+        return refreshFull(tableId);
+    }
+
+    /**
+     * 从飞书重新下载指定表并替换本地副本
+     * 下载期间发生的本地写入可能没有反映在下载结果中，替换后在新副本上重放这些写入
+     */
+    private Mono<Void> refreshFull(String tableId) {
+        return Mono.defer(() -> {
+            long seqBefore = mutationSeq(tableId).get();
+            long startTime = System.currentTimeMillis();
+            return fetchTable(tableId).doOnNext(records -> {
+                synchronized (lockFor(tableId)) {
+                    if (!markLanded(tableId, seqBefore)) {
+                        log.debug("表 {} 已有更新的刷新结果，放弃本次结果", tableId);
+                        return;
+                    }
+                    TableSnapshot fetched = buildSnapshot(tableId, records, System.currentTimeMillis());
+                    tables.put(tableId, replayLocalWrites(tableId, fetched, seqBefore));
+                }
+                log.debug("刷新表 {} 完成: {} 条记录，耗时 {}ms",
+                        tableId, records.size(), System.currentTimeMillis() - startTime);
+            }).then();
+        });
+    }
+
+    /**
+     * 只拉取水位之后新增或修改的记录，按record_id合并到本地副本的最新版本
+     * 与全量刷新相同，合并后重放拉取开始之后的本地写入，拉取期间的本地写入不会阻止本次结果落地
+     */
+    private Mono<Void> refreshIncremental(String tableId, String modifiedField, TableSnapshot current) {
+        return Mono.defer(() -> {
+            long seqBefore = mutationSeq(tableId).get();
+            long startTime = System.currentTimeMillis();
+            // 修改时间只精确到秒，往前多取1秒，重复拉到的记录合并时会跳过
+            return feishuService.searchRecordsModifiedSinceAsync(
+                    tableId, modifiedField, current.getWatermark() - 1000, fieldsFor(tableId)
+            ).doOnNext(changed -> {
+                synchronized (lockFor(tableId)) {
+                    TableSnapshot latest = tables.get(tableId);
+                    if (latest == null || !markLanded(tableId, seqBefore)) {
+                        log.debug("表 {} 已有更新的刷新结果，放弃本次增量结果", tableId);
+                        return;
+                    }
+                    if (!changed.isEmpty()) {
+                        tables.put(tableId, replayLocalWrites(tableId,
+                                upsertSnapshot(tableId, latest, changed, modifiedField), seqBefore));
+                    }
+                }
+                log.debug("增量刷新表 {} 完成: {} 条记录有变化，耗时 {}ms",
+                        tableId, changed.size(), System.currentTimeMillis() - startTime);
+            }).then();
+        });
+    }
+
+    /**
+     * 获取表的全部原始记录（只读）
+     */
+    public List<Map<String, Object>> getRecords(String tableId) {
+        if (tableId == null || tableId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return snapshot(tableId).getRecords();
+    }
+
+    public List<ProjectRow> getProjectRows() {
+        return rows(feishuConfig.getProjectsTableId());
+    }
+
+    public List<InvestorRow> getInvestorRows() {
+        return rows(feishuConfig.getInvestorsTableId());
+    }
+
+    public List<InvestmentRow> getInvestmentRows() {
+        return rows(feishuConfig.getInvestmentsTableId());
+    }
+
+    public List<ConfigRow> getConfigRows() {
+        return rows(feishuConfig.getConfigTableId());
+    }
+
+    /**
+     * 按账号查找投资人（哈希索引，O(1)）
+     * 索引随表快照一起构建和替换，刷新和本地写入后始终与表数据一致
+     *
+     * @param username 投资人账号（会去除首尾空白）
+     * @return 投资人行，不存在返回null
+     */
+    public InvestorRow findInvestorByUsername(String username) {
+        String tableId = feishuConfig.getInvestorsTableId();
+        if (username == null || tableId == null || tableId.isEmpty()) {
+            return null;
+        }
+        return (InvestorRow) snapshot(tableId).lookup(username.trim());
+    }
+
+    /**
+     * 投资记录二级索引（按投资人账号、按项目ID）
+     * 索引随表快照一起构建，追加投资记录时增量更新，查询不再扫描整张投资记录表
+     */
+    InvestmentIndex getInvestmentIndex() {
+        String tableId = feishuConfig.getInvestmentsTableId();
+        if (tableId == null || tableId.isEmpty()) {
+            return InvestmentIndex.EMPTY;
+        }
+        InvestmentIndex index = snapshot(tableId).getInvestments();
+        return index != null ? index : InvestmentIndex.EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> rows(String tableId) {
+        if (tableId == null || tableId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return (List<T>) snapshot(tableId).getRows();
+    }
+
+    /**
+     * 获取表快照，如果该表尚未加载，同步加载一次
+     */
+    private TableSnapshot snapshot(String tableId) {
+        TableSnapshot snapshot = tables.get(tableId);
+        if (snapshot == null) {
+            synchronized (lockFor(tableId)) {
+                snapshot = tables.get(tableId);
+                if (snapshot == null) {
+                    long seqBefore = mutationSeq(tableId).get();
+                    List<Map<String, Object>> records = fetchTable(tableId).block();
+                    snapshot = replayLocalWrites(tableId,
+                            buildSnapshot(tableId, records, System.currentTimeMillis()), seqBefore);
+                    markLanded(tableId, seqBefore);
+                    tables.put(tableId, snapshot);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 追加一条本地记录（写入飞书成功后调用）
+     *
+     * @param tableId  表ID
+     * @param recordId 飞书记录ID
+     * @param fields   字段数据
+     */
+    public void appendRecord(String tableId, String recordId, Map<String, Object> fields) {
+        Map<String, Object> record = new HashMap<>(fields);
+        if (recordId != null) {
+            record.put("record_id", recordId);
+        }
+
+        synchronized (lockFor(tableId)) {
+            recordLocalWrite(tableId, true, recordId != null ? Collections.singletonMap(recordId, fields) : null);
+            TableSnapshot snapshot = tables.get(tableId);
+            if (snapshot == null) {
+                return;
+            }
+            tables.put(tableId, snapshot.withAppended(indexKeyFor(tableId),
+                    Collections.singletonList(Collections.unmodifiableMap(record)),
+                    Collections.singletonList(decoderFor(tableId).apply(record))));
+        }
+    }
+
+    /**
+     * 一次性追加多条本地记录（批量写入飞书成功后调用）
+     *
+     * @param tableId 表ID
+     * @param records 飞书记录ID -> 字段数据
+     */
+    public void appendRecords(String tableId, Map<String, Map<String, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        synchronized (lockFor(tableId)) {
+            recordLocalWrite(tableId, true, records);
+            TableSnapshot snapshot = tables.get(tableId);
+            if (snapshot == null) {
+                return;
+            }
+            Function<Map<String, Object>, Object> decoder = decoderFor(tableId);
+            List<Map<String, Object>> newRecords = new ArrayList<>(records.size());
+            List<Object> appended = new ArrayList<>(records.size());
+            for (Map.Entry<String, Map<String, Object>> entry : records.entrySet()) {
+                Map<String, Object> record = new HashMap<>(entry.getValue());
+                record.put("record_id", entry.getKey());
+                newRecords.add(Collections.unmodifiableMap(record));
+                appended.add(decoder.apply(record));
+            }
+            tables.put(tableId, snapshot.withAppended(indexKeyFor(tableId), newRecords, appended));
+        }
+    }
+
+    /**
+     * 将字段更新合并到本地记录（更新飞书记录后调用）
+     *
+     * @param tableId  表ID
+     * @param recordId 飞书记录ID
+     * @param fields   需要更新的字段
+     */
+    public void mergeRecordFields(String tableId, String recordId, Map<String, Object> fields) {
+        if (recordId == null) {
+            return;
+        }
+
+        synchronized (lockFor(tableId)) {
+            recordLocalWrite(tableId, false, Collections.singletonMap(recordId, fields));
+            TableSnapshot snapshot = tables.get(tableId);
+            if (snapshot == null) {
+                return;
+            }
+            List<Map<String, Object>> records = new ArrayList<>(snapshot.getRecords());
+            List<Object> rows = new ArrayList<>(snapshot.getRows());
+            for (int i = 0; i < records.size(); i++) {
+                Map<String, Object> existing = records.get(i);
+                if (recordId.equals(existing.get("record_id"))) {
+                    Map<String, Object> merged = new HashMap<>(existing);
+                    merged.putAll(fields);
+                    records.set(i, Collections.unmodifiableMap(merged));
+                    rows.set(i, decoderFor(tableId).apply(merged));
+                    break;
+                }
+            }
+            tables.put(tableId, new TableSnapshot(indexKeyFor(tableId), records, rows,
+                    investmentIndexFor(tableId, rows), snapshot.getWatermark(), snapshot.getLoadedAt()));
+        }
+    }
+
+    /**
+     * 将多条记录的字段更新一次性合并到本地记录（批量更新飞书记录后调用）
+     *
+     * @param tableId 表ID
+     * @param updates 记录ID -> 需要更新的字段
+     */
+    public void mergeRecords(String tableId, Map<String, Map<String, Object>> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        synchronized (lockFor(tableId)) {
+            recordLocalWrite(tableId, false, updates);
+            TableSnapshot snapshot = tables.get(tableId);
+            if (snapshot == null) {
+                return;
+            }
+            Function<Map<String, Object>, Object> decoder = decoderFor(tableId);
+            List<Map<String, Object>> records = new ArrayList<>(snapshot.getRecords());
+            List<Object> rows = new ArrayList<>(snapshot.getRows());
+            for (int i = 0; i < records.size(); i++) {
+                Map<String, Object> existing = records.get(i);
+                Map<String, Object> fields = updates.get(existing.get("record_id"));
+                if (fields != null) {
+                    Map<String, Object> merged = new HashMap<>(existing);
+                    merged.putAll(fields);
+                    records.set(i, Collections.unmodifiableMap(merged));
+                    rows.set(i, decoder.apply(merged));
+                }
+            }
+            tables.put(tableId, new TableSnapshot(indexKeyFor(tableId), records, rows,
+                    investmentIndexFor(tableId, rows), snapshot.getWatermark(), snapshot.getLoadedAt()));
+        }
+    }
+
+    /**
+     * 记录一次本地写入（在表锁内调用），供之后落地的刷新结果重放
+     *
+     * @param append  true为追加记录，false为合并字段
+     * @param records 记录ID -> 字段，null表示无法重放（没有记录ID）
+     */
+    private void recordLocalWrite(String tableId, boolean append, Map<String, Map<String, Object>> records) {
+        long seq = mutationSeq(tableId).incrementAndGet();
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Deque<LocalWrite> writes = localWrites.computeIfAbsent(tableId, k -> new ArrayDeque<>());
+        if (writes.size() >= MAX_LOCAL_WRITES) {
+            writes.removeFirst();
+        }
+        writes.addLast(new LocalWrite(seq, append, new LinkedHashMap<>(records)));
+    }
+
+    /**
+     * 记录刷新结果落地（在表锁内调用）
+     *
+     * @param seqBefore 刷新开始时的本地写入序号
+     * @return false表示已有开始得更晚的刷新结果落地，本次结果更旧，不应落地
+     */
+    private boolean markLanded(String tableId, long seqBefore) {
+        Long landed = landedSeqs.get(tableId);
+        if (landed != null && landed > seqBefore) {
+            return false;
+        }
+        landedSeqs.put(tableId, seqBefore);
+        return true;
+    }
+
+    /**
+     * 在刷新得到的快照上重放拉取开始之后的本地写入（在表锁内调用），并清理已反映在飞书读结果中的写入
+     * 追加的记录已在飞书结果中时跳过；合并的字段覆盖飞书结果中的旧值
+     *
+     * @param seqBefore 刷新开始时的本地写入序号，此前的写入已经写入飞书，拉取结果中已包含
+     */
+    private TableSnapshot replayLocalWrites(String tableId, TableSnapshot snapshot, long seqBefore) {
+        Deque<LocalWrite> writes = localWrites.get(tableId);
+        if (writes == null) {
+            return snapshot;
+        }
+        writes.removeIf(write -> write.seq <= seqBefore);
+        if (writes.isEmpty()) {
+            return snapshot;
+        }
+
+        Function<Map<String, Object>, Object> decoder = decoderFor(tableId);
+        List<Map<String, Object>> records = new ArrayList<>(snapshot.getRecords());
+        List<Object> rows = new ArrayList<>(snapshot.getRows());
+        Map<Object, Integer> positions = new HashMap<>(records.size() * 2);
+        for (int i = 0; i < records.size(); i++) {
+            positions.put(records.get(i).get("record_id"), i);
+        }
+
+        List<Object> appended = new ArrayList<>();
+        boolean replaced = false;
+        for (LocalWrite write : writes) {
+            for (Map.Entry<String, Map<String, Object>> entry : write.records.entrySet()) {
+                Integer pos = positions.get(entry.getKey());
+                if (write.append) {
+                    if (pos != null) {
+                        continue;
+                    }
+                    Map<String, Object> record = new HashMap<>(entry.getValue());
+                    record.put("record_id", entry.getKey());
+                    Object row = decoder.apply(record);
+                    positions.put(entry.getKey(), records.size());
+                    records.add(Collections.unmodifiableMap(record));
+                    rows.add(row);
+                    appended.add(row);
+                } else if (pos != null) {
+                    Map<String, Object> merged = new HashMap<>(records.get(pos));
+                    merged.putAll(entry.getValue());
+                    records.set(pos, Collections.unmodifiableMap(merged));
+                    rows.set(pos, decoder.apply(merged));
+                    replaced = true;
+                }
+            }
+        }
+        log.debug("表 {} 刷新结果落地后重放 {} 次本地写入", tableId, writes.size());
+
+        InvestmentIndex investments = replaced
+                ? investmentIndexFor(tableId, rows)
+                : snapshot.appendToInvestments(appended);
+        return new TableSnapshot(indexKeyFor(tableId), records, rows, investments,
+                snapshot.getWatermark(), snapshot.getLoadedAt());
+    }
+
+    /**
+     * 获取表最近一次从飞书全量加载的时间（毫秒时间戳），未加载返回0
+     */
+    public long getLoadedAt(String tableId) {
+        TableSnapshot snapshot = tables.get(tableId);
+        return snapshot != null ? snapshot.getLoadedAt() : 0L;
+    }
+
+    private List<String> managedTableIds() {
+        List<String> tableIds = new ArrayList<>(4);
+        tableIds.add(feishuConfig.getProjectsTableId());
+        tableIds.add(feishuConfig.getInvestorsTableId());
+        tableIds.add(feishuConfig.getInvestmentsTableId());
+        tableIds.add(feishuConfig.getConfigTableId());
+        tableIds.removeIf(id -> id == null || id.isEmpty());
+        return tableIds;
+    }
+
+    /**
+     * 下载整张表（只请求解码用到的字段）
+     * 请求的字段中有表里不存在的字段时飞书会拒绝请求（FieldNameNotFound），此时记下该表并改为请求所有字段
+     */
+    private Mono<List<Map<String, Object>>> fetchTable(String tableId) {
+        List<String> fields = fieldsFor(tableId);
+        return feishuService.listRecordsAsync(tableId, fields)
+                .onErrorResume(e -> fields != null && e instanceof FeishuApiException
+                        && ((FeishuApiException) e).getCode() == FeishuApiException.FIELD_NAME_NOT_FOUND, e -> {
+                    unprojectedTables.add(tableId);
+                    log.info("表 {} 缺少部分字段 {}，该表改为请求所有字段", tableId, fields);
+                    return feishuService.listRecordsAsync(tableId, null);
+                });
+    }
+
+    /**
+     * 加载表时请求的字段：行解码用到的字段 + "修改时间"字段，非业务表或缺少部分字段的表返回null（请求所有字段）
+     */
+    private List<String> fieldsFor(String tableId) {
+        if (unprojectedTables.contains(tableId)) {
+            return null;
+        }
+        List<String> rowFields;
+        if (tableId.equals(feishuConfig.getProjectsTableId())) {
+            rowFields = ProjectRow.FIELDS;
+        } else if (tableId.equals(feishuConfig.getInvestorsTableId())) {
+            rowFields = InvestorRow.FIELDS;
+        } else if (tableId.equals(feishuConfig.getInvestmentsTableId())) {
+            rowFields = InvestmentRow.FIELDS;
+        } else if (tableId.equals(feishuConfig.getConfigTableId())) {
+            rowFields = ConfigRow.FIELDS;
+        } else {
+            return null;
+        }
+
+        String modifiedField = storeProperties.getModifiedTimeField();
+        if (modifiedField == null || modifiedField.isEmpty()) {
+            return rowFields;
+        }
+        List<String> fields = new ArrayList<>(rowFields.size() + 1);
+        fields.addAll(rowFields);
+        fields.add(modifiedField);
+        return fields;
+    }
+
+    private TableSnapshot buildSnapshot(String tableId, List<Map<String, Object>> records, long loadedAt) {
+        Function<Map<String, Object>, Object> decoder = decoderFor(tableId);
+        List<Object> rows = new ArrayList<>(records.size());
+        for (Map<String, Object> record : records) {
+            rows.add(decoder.apply(record));
+        }
+        return new TableSnapshot(indexKeyFor(tableId), records, rows, investmentIndexFor(tableId, rows),
+                maxModifiedTime(records, 0L), loadedAt);
+    }
+
+    /**
+     * 把增量拉取的记录合并到快照：已有的记录按record_id替换，新记录追加到末尾
+     * 按解码后的行判断记录是否变化（search 接口与本地合并的原始记录格式不同，不能直接比较）
+     * 只有新增记录时增量更新投资记录索引，有记录被替换时重建
+     */
+    private TableSnapshot upsertSnapshot(String tableId, TableSnapshot current,
+                                         List<Map<String, Object>> changed, String modifiedField) {
+        Function<Map<String, Object>, Object> decoder = decoderFor(tableId);
+        List<Map<String, Object>> records = new ArrayList<>(current.getRecords());
+        List<Object> rows = new ArrayList<>(current.getRows());
+        Map<Object, Integer> positions = new HashMap<>(records.size() * 2);
+        for (int i = 0; i < records.size(); i++) {
+            positions.put(records.get(i).get("record_id"), i);
+        }
+
+        List<Object> appended = new ArrayList<>();
+        boolean replaced = false;
+        for (Map<String, Object> record : changed) {
+            Object recordId = record.get("record_id");
+            Integer pos = recordId != null ? positions.get(recordId) : null;
+            if (pos != null) {
+                Object row = decoder.apply(record);
+                if (rows.get(pos).equals(row)) {
+                    continue;
+                }
+                records.set(pos, Collections.unmodifiableMap(record));
+                rows.set(pos, row);
+                replaced = true;
+            } else {
+                Object row = decoder.apply(record);
+                positions.put(recordId, records.size());
+                records.add(Collections.unmodifiableMap(record));
+                rows.add(row);
+                appended.add(row);
+            }
+        }
+
+        InvestmentIndex investments = replaced
+                ? investmentIndexFor(tableId, rows)
+                : current.appendToInvestments(appended);
+        return new TableSnapshot(indexKeyFor(tableId), records, rows, investments,
+                maxModifiedTime(changed, current.getWatermark()), current.getLoadedAt());
+    }
+
+    /**
+     * 记录中"修改时间"字段的最大值，作为下次增量刷新的水位
+     */
+    private long maxModifiedTime(List<Map<String, Object>> records, long initial) {
+        String modifiedField = storeProperties.getModifiedTimeField();
+        if (modifiedField == null || modifiedField.isEmpty()) {
+            return 0L;
+        }
+        long max = initial;
+        for (Map<String, Object> record : records) {
+            max = Math.max(max, FieldValues.getLong(record, modifiedField));
+        }
+        return max;
+    }
+
+    /**
+     * 根据表ID选择行解码器，非业务表保留原始记录
+     */
+    private Function<Map<String, Object>, Object> decoderFor(String tableId) {
+        if (tableId.equals(feishuConfig.getProjectsTableId())) {
+            return ProjectRow::from;
+        }
+        if (tableId.equals(feishuConfig.getInvestorsTableId())) {
+            return InvestorRow::from;
+        }
+        if (tableId.equals(feishuConfig.getInvestmentsTableId())) {
+            return InvestmentRow::from;
+        }
+        if (tableId.equals(feishuConfig.getConfigTableId())) {
+            return ConfigRow::from;
+        }
+        return record -> record;
+    }
+
+    /**
+     * 根据表ID选择索引键，没有索引的表返回null
+     * 投资人表按账号建立索引（与线性扫描一致，重复账号取第一条）
+     */
+    private Function<Object, String> indexKeyFor(String tableId) {
+        if (tableId.equals(feishuConfig.getInvestorsTableId())) {
+            return row -> ((InvestorRow) row).getUsername();
+        }
+        return null;
+    }
+
+    /**
+     * 投资记录表构建按投资人、按项目的二级索引，其他表返回null
+     */
+    private InvestmentIndex investmentIndexFor(String tableId, List<Object> rows) {
+        if (tableId.equals(feishuConfig.getInvestmentsTableId())) {
+            return InvestmentIndex.build(investmentRows(rows));
+        }
+        return null;
+    }
+
+    /**
+     * 投资记录表的行（由 InvestmentRow 解码器生成）转为类型化列表，只在构建投资记录索引时转换
+     */
+    private static List<InvestmentRow> investmentRows(List<Object> rows) {
+        List<InvestmentRow> investmentRows = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            investmentRows.add((InvestmentRow) row);
+        }
+        return investmentRows;
+    }
+
+    private AtomicLong mutationSeq(String tableId) {
+        return mutationSeqs.computeIfAbsent(tableId, k -> new AtomicLong());
+    }
+
+    private Object lockFor(String tableId) {
+        return mutationSeq(tableId);
+    }
+
+    /**
+     * 一次本地写入：追加记录或合并字段
+     */
+    private static class LocalWrite {
+        private final long seq;
+        private final boolean append;
+        private final Map<String, Map<String, Object>> records;
+
+        LocalWrite(long seq, boolean append, Map<String, Map<String, Object>> records) {
+            this.seq = seq;
+            this.append = append;
+            this.records = records;
+        }
+    }
+
+    /**
+     * 表快照：记录和行是可廉价追加的只读列表，追加本地记录时只处理新增的部分
+     */
+    private static class TableSnapshot {
+        private final AppendOnlyList<Map<String, Object>> records;
+        private final AppendOnlyList<Object> rows;
+        private final Map<String, Object> index;
+        private final InvestmentIndex investments;
+        private final long watermark;
+        private final long loadedAt;
+
+        TableSnapshot(Function<Object, String> indexKey, List<Map<String, Object>> records,
+                      List<Object> rows, InvestmentIndex investments, long watermark, long loadedAt) {
+            this(AppendOnlyList.copyOf(records), AppendOnlyList.copyOf(rows),
+                    appendToIndex(indexKey, Collections.emptyMap(), rows), investments, watermark, loadedAt);
+        }
+
+        private TableSnapshot(AppendOnlyList<Map<String, Object>> records, AppendOnlyList<Object> rows,
+                              Map<String, Object> index, InvestmentIndex investments, long watermark, long loadedAt) {
+            this.records = records;
+            this.rows = rows;
+            this.index = index;
+            this.investments = investments;
+            this.watermark = watermark;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * 追加记录后的快照（原快照不变）
+         * 记录和行只追加新元素，账号索引只在新行带来新账号时复制，投资记录索引增量更新
+         */
+        TableSnapshot withAppended(Function<Object, String> indexKey, List<Map<String, Object>> newRecords,
+                                   List<Object> newRows) {
+            return new TableSnapshot(records.withAppended(newRecords), rows.withAppended(newRows),
+                    appendToIndex(indexKey, index, newRows), appendToInvestments(newRows), watermark, loadedAt);
+        }
+
+        /**
+         * 把新行加入账号索引（与线性扫描一致，重复账号保留先出现的行），没有新账号时沿用原索引
+         */
+        private static Map<String, Object> appendToIndex(Function<Object, String> indexKey,
+                                                         Map<String, Object> index, List<Object> rows) {
+            if (indexKey == null) {
+                return index;
+            }
+            Map<String, Object> result = index;
+            for (Object row : rows) {
+                String key = indexKey.apply(row);
+                if (key == null || result.containsKey(key)) {
+                    continue;
+                }
+                if (result == index) {
+                    result = new HashMap<>(Math.max(16, (index.size() + rows.size()) * 2));
+                    result.putAll(index);
+                }
+                result.put(key, row);
+            }
+            return result;
+        }
+
+        Object lookup(String key) {
+            return index.get(key);
+        }
+
+        InvestmentIndex getInvestments() {
+            return investments;
+        }
+
+        /**
+         * 追加行后的投资记录索引（只处理新增的行，非投资记录表返回null）
+         */
+        InvestmentIndex appendToInvestments(List<Object> appended) {
+            return investments != null ? investments.withAppended(investmentRows(appended)) : null;
+        }
+
+        List<Map<String, Object>> getRecords() {
+            return records;
+        }
+
+        List<Object> getRows() {
+            return rows;
+        }
+
+        /**
+         * 增量刷新水位：已拉取记录中最大的修改时间，0表示不能增量刷新
+         */
+        long getWatermark() {
+            return watermark;
+        }
+
+        long getLoadedAt() {
+            return loadedAt;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.gdtech.hackathon.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gdtech.hackathon.config.FeishuConfig;
 import com.gdtech.hackathon.config.HackathonProperties;
 import com.gdtech.hackathon.model.*;
+import com.gdtech.hackathon.model.row.ConfigRow;
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import com.gdtech.hackathon.model.row.InvestorRow;
+import com.gdtech.hackathon.model.row.ProjectRow;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.CacheManager;
@@ -19,9 +24,9 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -32,30 +37,45 @@ import java.util.stream.Collectors;
 public class HackathonService {
 
     private final FeishuService feishuService;
+    private final FeishuTableStore tableStore;
+    private final InvestmentLedger investmentLedger;
     private final FeishuConfig feishuConfig;
     private final HackathonProperties hackathonProperties;
     private final ApplicationContext applicationContext;
     private final CacheManager cacheManager;
     private HackathonService self;
 
-    // 用于并发API调用的线程池（固定4个线程）
-    private final ExecutorService apiExecutor = Executors.newFixedThreadPool(4, r -> {
-        Thread t = new Thread(r);
-        t.setName("feishu-api-" + t.getId());
-        t.setDaemon(true);
-        return t;
-    });
+    // 排行榜快照缓存（过期后后台刷新，刷新期间继续返回旧快照）
+    private final LeaderboardCache leaderboardCache;
+    private final RankingEngine rankingEngine = new RankingEngine();
+
+    // 投资人分段锁：同一投资人的投资串行执行，不同投资人互不阻塞
+    private static final int INVESTOR_LOCK_STRIPES = 64;
+    private final Lock[] investorLocks = new Lock[INVESTOR_LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < INVESTOR_LOCK_STRIPES; i++) {
+            investorLocks[i] = new ReentrantLock();
+        }
+    }
 
     public HackathonService(FeishuService feishuService,
+                            FeishuTableStore tableStore,
+                            InvestmentLedger investmentLedger,
                             FeishuConfig feishuConfig,
                             HackathonProperties hackathonProperties,
                             ApplicationContext applicationContext,
-                            CacheManager cacheManager) {
+                            CacheManager cacheManager,
+                            ObjectMapper objectMapper) {
         this.feishuService = feishuService;
+        this.tableStore = tableStore;
+        this.investmentLedger = investmentLedger;
         this.feishuConfig = feishuConfig;
         this.hackathonProperties = hackathonProperties;
         this.applicationContext = applicationContext;
         this.cacheManager = cacheManager;
+        this.leaderboardCache = new LeaderboardCache(this::loadAllProjects, objectMapper,
+                hackathonProperties.getLeaderboard().getRefreshAfter() * 1000L);
     }
 
     @PostConstruct
@@ -78,13 +98,10 @@ public class HackathonService {
      */
     public CompetitionStage getCurrentStage() {
         try {
-            // 1. 读取飞书配置表
-            String tableId = feishuConfig.getConfigTableId();
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
-
-            for (Map<String, Object> record : records) {
-                if ("current_stage".equals(record.get("配置项"))) {
-                    String stageCode = (String) record.get("配置值");
+            // 1. 读取飞书配置表（本地副本）
+            for (ConfigRow row : tableStore.getConfigRows()) {
+                if ("current_stage".equals(row.getKey())) {
+                    String stageCode = row.getValue();
 
                     // 2. 如果配置值不为空，使用配置值（方便产品验证）
                     if (stageCode != null && !stageCode.trim().isEmpty()) {
@@ -207,42 +224,73 @@ public class HackathonService {
 
     /**
      * 获取所有项目列表（带排名）
-     * 优化：使用CompletableFuture并发调用多个飞书API，减少总响应时间
-     * 缓存30秒，投资或UV同步后自动清除
+     * 优化：stale-while-revalidate，快照超过30秒或投资/UV同步后在后台重新计算，
+     * 计算完成前继续返回旧快照，读请求不等待计算
      */
-    @Cacheable(value = "allProjects", unless = "#result == null || #result.isEmpty()")
     public List<Project> getAllProjects() {
-        try {
-            long startTime = System.currentTimeMillis();
+        return leaderboardCache.get();
+    }
 
-            // 并发获取所有需要的飞书表数据
-            CompletableFuture<List<Map<String, Object>>> projectsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(feishuConfig.getProjectsTableId()), apiExecutor);
+    /**
+     * 获取排行榜快照（含预先序列化、压缩的响应体和ETag）
+     *
+     * @return 快照，没有启用的项目时返回null
+     */
+    public LeaderboardSnapshot getLeaderboardSnapshot() {
+        return leaderboardCache.getSnapshot();
+    }
 
-            CompletableFuture<List<Map<String, Object>>> investmentsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(feishuConfig.getInvestmentsTableId()), apiExecutor);
+    /**
+     * 获取当前排行榜快照，不同步计算（还没有快照时返回null）
+     */
+    public LeaderboardSnapshot peekLeaderboardSnapshot() {
+        return leaderboardCache.peekSnapshot();
+    }
 
-            CompletableFuture<List<Map<String, Object>>> investorsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(feishuConfig.getInvestorsTableId()), apiExecutor);
+    /**
+     * 标记排行榜快照失效，触发一次后台重新计算
+     */
+    public void invalidateLeaderboard() {
+        leaderboardCache.invalidate();
+    }
 
-            CompletableFuture<List<Map<String, Object>>> configFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(feishuConfig.getConfigTableId()), apiExecutor);
+    /**
+     * 获取相对于客户端持有版本的排行榜增量（预序列化的响应体），没有项目时返回null
+     */
+    public byte[] getLeaderboardDeltaBody(long sinceVersion) {
+        return leaderboardCache.getDeltaBody(sinceVersion);
+    }
 
-            // 等待所有API调用完成
-            CompletableFuture.allOf(projectsFuture, investmentsFuture, investorsFuture, configFuture).join();
+    /**
+     * 注册排行榜新快照监听器（排行榜重新计算完成后回调）
+     */
+    public void addLeaderboardListener(Consumer<LeaderboardSnapshot> listener) {
+        leaderboardCache.addListener(listener);
+    }
 
-            // 获取结果
-            List<Map<String, Object>> projectRecords = projectsFuture.get();
-            List<Map<String, Object>> investmentRecords = investmentsFuture.get();
-            List<Map<String, Object>> investorRecords = investorsFuture.get();
-            List<Map<String, Object>> configRecords = configFuture.get();
+    /**
+     * 排行榜缓存统计（计算次数、合并请求数、后台刷新次数、排名引擎重建次数等）
+     */
+    public Map<String, Object> getLeaderboardStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(leaderboardCache.stats());
+        stats.put("ranking", rankingEngine.stats());
+        return stats;
+    }
+
+    /**
+     * 计算完整项目列表（带投资记录和排名）
+     * 四张表均从本地物化副本读取，无需调用飞书API
+     */
+    private List<Project> loadAllProjects() {
+        try {
+            long startTime = System.currentTimeMillis();
+
+            List<ProjectRow> projectRecords = tableStore.getProjectRows();
+            InvestmentIndex investmentIndex = investmentLedger.investmentIndex();
+            List<ConfigRow> configRecords = tableStore.getConfigRows();
 
             long apiTime = System.currentTimeMillis() - startTime;
-            log.debug("并发获取4个飞书表数据耗时: {}ms", apiTime);
+            log.debug("读取4个本地表副本耗时: {}ms", apiTime);
 
             if (projectRecords == null || projectRecords.isEmpty()) {
                 log.warn("从飞书查询项目列表为空");
@@ -262,13 +310,13 @@ public class HackathonService {
             }
 
             // 使用已获取的数据填充投资记录（无需再次调用API）
-            enrichProjectsWithInvestmentsFromData(projects, investmentRecords, investorRecords);
+            enrichProjectsWithInvestmentsFromData(projects, investmentIndex);
 
             // 计算排名（传入已获取的配置数据）
             calculateRankingsFromData(projects, configRecords);
 
             long totalTime = System.currentTimeMillis() - startTime;
-            log.info("getAllProjects总耗时: {}ms (API并发耗时: {}ms)", totalTime, apiTime);
+            log.info("getAllProjects总耗时: {}ms (读取本地副本耗时: {}ms)", totalTime, apiTime);
 
             return projects;
         } catch (Exception e) {
@@ -292,9 +340,8 @@ public class HackathonService {
         }
 
         try {
-            // 使用全表扫描查询
-            String tableId = feishuConfig.getProjectsTableId();
-            Map<String, Object> record = findRecordByField(tableId, "项目ID", projectId);
+            // 扫描本地项目表副本
+            ProjectRow record = findProjectRow(projectId);
 
             if (record == null) {
                 log.debug("未找到项目: {}", projectId);
@@ -302,7 +349,7 @@ public class HackathonService {
             }
 
             Project project = convertToProject(record);
-            log.debug("从飞书加载项目: {}, 将缓存5分钟", projectId);
+            log.debug("从本地副本加载项目: {}, 将缓存5分钟", projectId);
             return project;
         } catch (Exception e) {
             log.error("获取项目{}失败", projectId, e);
@@ -312,55 +359,33 @@ public class HackathonService {
 
     /**
      * 投资人登录
-     * 优化：并发查询投资人信息和投资历史，减少API调用耗时
+     * 优化：投资人按账号索引查找（O(1)），投资历史从本地物化副本读取
      */
     public Investor login(String username, String password) {
         try {
             long startTime = System.currentTimeMillis();
 
-            String investorsTableId = feishuConfig.getInvestorsTableId();
-            String investmentsTableId = feishuConfig.getInvestmentsTableId();
-
-            // 优化：并发获取投资人信息和投资历史
-            CompletableFuture<List<Map<String, Object>>> investorsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(investorsTableId), apiExecutor);
-
-            CompletableFuture<List<Map<String, Object>>> investmentsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(investmentsTableId), apiExecutor);
-
-            // 等待两个API调用完成
-            CompletableFuture.allOf(investorsFuture, investmentsFuture).join();
-
-            // 获取结果
-            List<Map<String, Object>> investorRecords = investorsFuture.get();
-            List<Map<String, Object>> investmentRecords = investmentsFuture.get();
+            // 按账号索引查找投资人记录
+            InvestorRow record = tableStore.findInvestorByUsername(username);
+            if (record == null) {
+                return null; // 账号不存在
+            }
+            if (!password.equals(record.getPassword()) || !record.isEnabled()) {
+                return null; // 密码错误或账号未启用
+            }
 
+            InvestmentIndex investmentIndex = investmentLedger.investmentIndex();
             long fetchTime = System.currentTimeMillis() - startTime;
-            log.debug("并发获取投资人和投资记录耗时: {}ms", fetchTime);
-
-            // 查找匹配的投资人记录
-            for (Map<String, Object> record : investorRecords) {
-                if (fieldValueEquals(record.get("账号"), username)) {
-                    String recordPassword = (String) record.get("初始密码");
-                    Boolean enabled = (Boolean) record.getOrDefault("是否启用", true);
-
-                    if (password.equals(recordPassword) && Boolean.TRUE.equals(enabled)) {
-                        Investor investor = convertToInvestor(record);
-                        // 使用已获取的投资记录数据填充历史
-                        enrichInvestorWithHistoryFromData(investor, investmentRecords);
-
-                        long totalTime = System.currentTimeMillis() - startTime;
-                        log.info("登录成功: {}, 总耗时: {}ms (并发查询耗时: {}ms)",
-                                username, totalTime, fetchTime);
-                        return investor;
-                    }
-                    return null; // 密码错误或账号未启用
-                }
-            }
+            log.debug("读取投资人和投资记录本地副本耗时: {}ms", fetchTime);
+
+            Investor investor = convertToInvestor(record);
+            // 使用已获取的投资记录数据填充历史
+            enrichInvestorWithHistoryFromData(investor, investmentIndex);
 
-            return null; // 账号不存在
+            long totalTime = System.currentTimeMillis() - startTime;
+            log.info("登录成功: {}, 总耗时: {}ms (读取本地副本耗时: {}ms)",
+                    username, totalTime, fetchTime);
+            return investor;
         } catch (Exception e) {
             log.error("投资人登录失败", e);
             return null;
@@ -370,16 +395,19 @@ public class HackathonService {
     /**
      * 执行投资
      * 方案5优化：前端传递姓名，完全消除查询投资人和项目的步骤1
-     * 投资成功后清除相关缓存 (afterInvocation=true确保在方法执行后清除)
+     * 投资成功后清除相关缓存 (afterInvocation=true确保在方法执行后清除)，排行榜快照在后台重新计算
+     * 剩余额度在投资账本中原子扣减后立即返回，飞书写入由账本的写回队列完成
+     * 按投资人账号加分段锁，保证同一投资人的投资按受理顺序进入写回队列
      */
     @Caching(evict = {
             @CacheEvict(value = "investor", key = "#investorUsername", beforeInvocation = false),
             @CacheEvict(value = "project", key = "#projectId", beforeInvocation = false),
-            @CacheEvict(value = "projects", allEntries = true, beforeInvocation = false),
-            @CacheEvict(value = "allProjects", allEntries = true, beforeInvocation = false)
+            @CacheEvict(value = "projects", allEntries = true, beforeInvocation = false)
     })
-    public synchronized boolean invest(String investorUsername, String investorName,
-                                       Long projectId, String projectName, Integer amount) {
+    public boolean invest(String investorUsername, String investorName,
+                          Long projectId, String projectName, Integer amount) {
+        Lock investorLock = investorLockFor(investorUsername);
+        investorLock.lock();
         try {
             long startTime = System.currentTimeMillis();
             long stepStart;
@@ -393,28 +421,16 @@ public class HackathonService {
             // 【方案5优化】步骤1已完全消除：前端传递姓名，无需查询投资人和项目
             log.info("[投资性能] 方案5生效 - 跳过步骤1查询，直接使用前端传递的姓名");
 
-            // 步骤1.5：仅查询投资人的recordId和剩余额度（轻量查询）
+            // 步骤1.5：仅查询投资人的recordId（剩余额度以投资账本为准）
             stepStart = System.currentTimeMillis();
-            Investor investor = getInvestorByUsername(investorUsername);
+            InvestorRow investor = investorUsername != null ? findInvestorRow(investorUsername) : null;
             long step1Time = System.currentTimeMillis() - stepStart;
-            log.info("[投资性能] 步骤1-轻量查询投资人额度和recordId耗时: {}ms", step1Time);
+            log.info("[投资性能] 步骤1-轻量查询投资人recordId耗时: {}ms", step1Time);
 
             if (investor == null) {
                 throw new IllegalStateException("投资人不存在");
             }
 
-            // 检查剩余额度（从飞书表读取）
-            Integer remaining = investor.getRemainingAmount();
-            if (remaining == null) {
-                remaining = investor.getInitialAmount(); // 兼容旧数据
-            }
-            if (amount > remaining) {
-                throw new IllegalStateException("投资金额超过剩余额度");
-            }
-
-            // 计算新的剩余额度
-            final Integer newRemaining = remaining - amount;
-
             // 使用步骤1获取的recordId
             final String investorRecordId = investor.getRecordId();
             if (investorRecordId == null || investorRecordId.isEmpty()) {
@@ -422,105 +438,67 @@ public class HackathonService {
                 throw new IllegalStateException("投资人数据异常");
             }
 
-            // 【方案2+3优化】：并发 + 异步执行步骤2和步骤4
+            // 步骤2：在投资账本中原子扣减额度并受理投资
+            // 投资记录和剩余额度由写回队列异步写入飞书
             stepStart = System.currentTimeMillis();
-
-            // 步骤2：创建投资记录（同步执行，确保成功）
-            // 【方案5优化】：使用前端传递的姓名，无需从对象中获取
             Map<String, Object> investmentFields = new HashMap<>();
-            investmentFields.put("投资人账号", investorUsername);
+            investmentFields.put("投资人账号", investor.getUsername());
             investmentFields.put("项目ID", projectId);
             investmentFields.put("投资金额", amount);
             investmentFields.put("投资时间", System.currentTimeMillis());  // 使用Unix时间戳（毫秒）
             investmentFields.put("投资人姓名", investorName);  // 使用前端传递的姓名
             investmentFields.put("项目名称", projectName);      // 使用前端传递的名称
 
-            CompletableFuture<String> createRecordFuture = CompletableFuture.supplyAsync(
-                    () -> feishuService.createRecord(feishuConfig.getInvestmentsTableId(), investmentFields),
-                    apiExecutor);
-
-            // 步骤4：更新剩余额度（异步执行，不阻塞返回）
-            final String investorsTableId = feishuConfig.getInvestorsTableId();
-            final Integer oldRemaining = remaining;  // 用于日志
-            CompletableFuture<Void> updateAmountFuture = CompletableFuture.runAsync(() -> {
-                try {
-                    long updateStart = System.currentTimeMillis();
-                    Map<String, Object> updateFields = new HashMap<>();
-                    updateFields.put("剩余额度", newRemaining);
-                    feishuService.updateRecord(investorsTableId, investorRecordId, updateFields);
-                    long updateTime = System.currentTimeMillis() - updateStart;
-                    log.info("[投资性能] 步骤4-异步更新剩余额度耗时: {}ms ({}->{})",
-                            updateTime, oldRemaining, newRemaining);
-                } catch (Exception e) {
-                    log.error("异步更新投资人{}剩余额度失败", investorUsername, e);
-                }
-            }, apiExecutor);
-
-            // 等待创建投资记录完成（必须成功）
-            String recordId = createRecordFuture.get();
+            int newRemaining = investmentLedger.accept(investor, investmentFields, amount);
             long step2Time = System.currentTimeMillis() - stepStart;
-            log.info("[投资性能] 步骤2-创建投资记录耗时: {}ms", step2Time);
-
-            // 不等待更新剩余额度，异步执行（方案3）
-            // 注：前端需要在点击投资按钮时重新校验额度
+            log.info("[投资性能] 步骤2-账本扣减额度耗时: {}ms", step2Time);
 
             long totalTime = System.currentTimeMillis() - startTime;
-            log.info("[投资性能] 总耗时: {}ms (步骤1:{}ms + 步骤2:{}ms, 步骤4异步执行中)",
+            log.info("[投资性能] 总耗时: {}ms (步骤1:{}ms + 步骤2:{}ms, 写入飞书由写回队列执行)",
                     totalTime, step1Time, step2Time);
-            log.info("投资成功: {} 投资 {} 万元给项目 {}, recordId: {}",
-                    investorUsername, amount, projectId, recordId);
+            log.info("投资已受理: {} 投资 {} 万元给项目 {}, 剩余额度: {}",
+                    investorUsername, amount, projectId, newRemaining);
+            leaderboardCache.invalidate();
             return true;
         } catch (Exception e) {
             log.error("投资失败", e);
             throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            investorLock.unlock();
         }
     }
 
+    private Lock investorLockFor(String investorUsername) {
+        String key = investorUsername != null ? investorUsername.trim() : "";
+        return investorLocks[Math.floorMod(key.hashCode(), INVESTOR_LOCK_STRIPES)];
+    }
+
     /**
      * 获取投资人信息（含投资历史）
-     * 优化：并发查询投资人信息和投资历史，减少API调用耗时
+     * 优化：投资人按账号索引查找（O(1)），投资历史从本地物化副本读取
      */
     public Investor getInvestorInfo(String username) {
         try {
             long startTime = System.currentTimeMillis();
 
-            String investorsTableId = feishuConfig.getInvestorsTableId();
-            String investmentsTableId = feishuConfig.getInvestmentsTableId();
-
-            // 优化：并发获取投资人信息和投资历史
-            CompletableFuture<List<Map<String, Object>>> investorsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(investorsTableId), apiExecutor);
-
-            CompletableFuture<List<Map<String, Object>>> investmentsFuture =
-                CompletableFuture.supplyAsync(() ->
-                    feishuService.listRecords(investmentsTableId), apiExecutor);
-
-            // 等待两个API调用完成
-            CompletableFuture.allOf(investorsFuture, investmentsFuture).join();
-
-            // 获取结果
-            List<Map<String, Object>> investorRecords = investorsFuture.get();
-            List<Map<String, Object>> investmentRecords = investmentsFuture.get();
+            // 按账号索引查找投资人记录
+            InvestorRow record = tableStore.findInvestorByUsername(username);
+            if (record == null) {
+                return null; // 投资人不存在
+            }
 
+            InvestmentIndex investmentIndex = investmentLedger.investmentIndex();
             long fetchTime = System.currentTimeMillis() - startTime;
-            log.debug("并发获取投资人和投资记录耗时: {}ms", fetchTime);
-
-            // 查找匹配的投资人记录
-            for (Map<String, Object> record : investorRecords) {
-                if (fieldValueEquals(record.get("账号"), username)) {
-                    Investor investor = convertToInvestor(record);
-                    // 使用已获取的投资记录数据填充历史
-                    enrichInvestorWithHistoryFromData(investor, investmentRecords);
-
-                    long totalTime = System.currentTimeMillis() - startTime;
-                    log.info("获取投资人信息成功: {}, 总耗时: {}ms (并发查询耗时: {}ms)",
-                            username, totalTime, fetchTime);
-                    return investor;
-                }
-            }
+            log.debug("读取投资人和投资记录本地副本耗时: {}ms", fetchTime);
+
+            Investor investor = convertToInvestor(record);
+            // 使用已获取的投资记录数据填充历史
+            enrichInvestorWithHistoryFromData(investor, investmentIndex);
 
-            return null; // 投资人不存在
+            long totalTime = System.currentTimeMillis() - startTime;
+            log.info("获取投资人信息成功: {}, 总耗时: {}ms (读取本地副本耗时: {}ms)",
+                    username, totalTime, fetchTime);
+            return investor;
         } catch (Exception e) {
             log.error("获取投资人信息失败", e);
             return null;
@@ -529,187 +507,76 @@ public class HackathonService {
 
     // ==================== 私有方法 ====================
 
-    private Project convertToProject(Map<String, Object> record) {
-        if (record == null || record.isEmpty()) {
+    private Project convertToProject(ProjectRow record) {
+        if (record == null) {
             log.warn("尝试转换空记录为Project");
             return null;
         }
 
         Project project = new Project();
-        project.setId(getLong(record, "项目ID"));
-        project.setName(getStringValue(record, "项目名称"));
-        project.setDescription(getStringValue(record, "一句话描述"));
-        project.setUrl(getStringValue(record, "项目网址"));
-        project.setImage(getStringValue(record, "项目配图URL"));
-        project.setTeamName(getStringValue(record, "队伍名称"));
-        project.setTeamNumber(getStringValue(record, "队伍编号"));
-        project.setTeamUrl(getStringValue(record, "团队介绍页URL"));
-        project.setBaiduAccount(getStringValue(record, "百度统计账号"));
-        project.setBaiduSiteId(getStringValue(record, "百度统计SiteID"));
-        project.setUv(getLong(record, "累计UV"));
-        project.setEnabled(getBooleanValue(record, "是否启用", true));
+        project.setId(record.getId());
+        project.setName(record.getName());
+        project.setDescription(record.getDescription());
+        project.setUrl(record.getUrl());
+        project.setImage(record.getImage());
+        project.setTeamName(record.getTeamName());
+        project.setTeamNumber(record.getTeamNumber());
+        project.setTeamUrl(record.getTeamUrl());
+        project.setBaiduAccount(record.getBaiduAccount());
+        project.setBaiduSiteId(record.getBaiduSiteId());
+        project.setUv(record.getUv());
+        project.setEnabled(record.isEnabled());
         return project;
     }
 
-    private Investor convertToInvestor(Map<String, Object> record) {
-        if (record == null || record.isEmpty()) {
+    private Investor convertToInvestor(InvestorRow record) {
+        if (record == null) {
             log.warn("尝试转换空记录为Investor");
             return null;
         }
 
         Investor investor = new Investor();
-        investor.setRecordId(getStringValue(record, "record_id"));  // 保存record_id用于后续更新
-        investor.setId(getLong(record, "投资人ID"));
-        investor.setUsername(getStringValue(record, "账号"));
-        investor.setPassword(getStringValue(record, "初始密码"));
-        investor.setName(getStringValue(record, "姓名"));
-        investor.setTitle(getStringValue(record, "职务"));
-        investor.setAvatar(getStringValue(record, "头像URL"));
-        investor.setInitialAmount(getInteger(record, "初始额度"));
-        investor.setRemainingAmount(getInteger(record, "剩余额度"));  // 从飞书读取剩余额度
-        investor.setEnabled(getBooleanValue(record, "是否启用", true));
+        investor.setRecordId(record.getRecordId());  // 保存record_id用于后续更新
+        investor.setId(record.getId());
+        investor.setUsername(record.getUsername());
+        investor.setPassword(record.getPassword());
+        investor.setName(record.getName());
+        investor.setTitle(record.getTitle());
+        investor.setAvatar(record.getAvatar());
+        investor.setInitialAmount(record.getInitialAmount());
+        // 剩余额度以投资账本为准，账本尚未加载该投资人时使用飞书表中的值
+        Integer balance = investmentLedger.getBalance(record.getUsername());
+        investor.setRemainingAmount(balance != null ? balance : record.getRemainingAmount());
+        investor.setEnabled(record.isEnabled());
         return investor;
     }
 
-    private String getStringValue(Map<String, Object> map, String key) {
-        if (map == null || key == null) {
-            return null;
-        }
-        Object value = map.get(key);
-        if (value == null) {
-            return null;
-        }
-
-        // 处理飞书多维表格的URL类型字段：{"link": "...", "text": "...", "type": "url"}
-        if (value instanceof Map) {
-            Map<String, Object> valueMap = (Map<String, Object>) value;
-            // URL类型字段
-            if (valueMap.containsKey("link")) {
-                Object link = valueMap.get("link");
-                return link != null ? link.toString().trim() : null;
-            }
-            // 也尝试取text字段
-            if (valueMap.containsKey("text")) {
-                Object text = valueMap.get("text");
-                return text != null ? text.toString().trim() : null;
-            }
-        }
-
-        // 处理飞书多维表格的文本类型字段：[{"text": "...", "type": "text"}]
-        if (value instanceof java.util.List) {
-            java.util.List<?> list = (java.util.List<?>) value;
-            if (!list.isEmpty() && list.get(0) instanceof Map) {
-                Map<String, Object> firstItem = (Map<String, Object>) list.get(0);
-                if (firstItem.containsKey("text")) {
-                    Object text = firstItem.get("text");
-                    return text != null ? text.toString().trim() : null;
-                }
-            }
-        }
-
-        return value.toString().trim();
-    }
-
-    private Boolean getBooleanValue(Map<String, Object> map, String key, Boolean defaultValue) {
-        if (map == null || key == null) {
-            return defaultValue;
-        }
-        Object value = map.get(key);
-        if (value == null) {
-            return defaultValue;
-        }
-        if (value instanceof Boolean) {
-            return (Boolean) value;
-        }
-        String strValue = value.toString().trim().toLowerCase();
-        if ("true".equals(strValue) || "1".equals(strValue)) {
-            return true;
-        }
-        if ("false".equals(strValue) || "0".equals(strValue)) {
-            return false;
-        }
-        return defaultValue;
-    }
-
     /**
-     * 根据用户名获取投资人信息
-     * 使用缓存,5分钟过期
-     * 投资操作后会清除缓存
+     * 使用投资记录索引填充每个项目的投资记录和投资总额（按项目ID直接取，不再分组整张表）
      */
-    @Cacheable(value = "investor", key = "#username", unless = "#result == null")
-    private Investor getInvestorByUsername(String username) {
-        if (username == null || username.trim().isEmpty()) {
-            log.warn("无效的投资人账号: {}", username);
-            return null;
-        }
-
+    private void enrichProjectsWithInvestmentsFromData(List<Project> projects, InvestmentIndex investmentIndex) {
         try {
-            // 使用全表扫描查询
-            String tableId = feishuConfig.getInvestorsTableId();
-            Map<String, Object> record = findRecordByField(tableId, "账号", username);
-
-            if (record == null) {
-                log.debug("未找到投资人: {}", username);
-                return null;
-            }
-
-            Investor investor = convertToInvestor(record);
-            log.debug("从飞书加载投资人: {}, 将缓存5分钟", username);
-            return investor;
-        } catch (Exception e) {
-            log.error("获取投资人{}失败", username, e);
-            return null;
-        }
-    }
-
-    /**
-     * 使用已获取的数据填充投资记录（新方法，避免重复API调用）
-     */
-    private void enrichProjectsWithInvestmentsFromData(List<Project> projects,
-                                                        List<Map<String, Object>> investmentRecords,
-                                                        List<Map<String, Object>> investorRecords) {
-        try {
-            // 构建投资人Map
-            Map<String, Map<String, Object>> investorMap = investorRecords.stream()
-                    .collect(Collectors.toMap(
-                            r -> getStringValue(r, "账号"),
-                            r -> r,
-                            (existing, replacement) -> existing
-                    ));
-
-            // 按项目ID分组投资记录
-            Map<Long, List<Map<String, Object>>> investmentsByProject = investmentRecords.stream()
-                    .collect(Collectors.groupingBy(r -> getLong(r, "项目ID")));
-
             // 填充每个项目的投资数据
             for (Project project : projects) {
-                List<Map<String, Object>> investments = investmentsByProject.getOrDefault(project.getId(), Collections.emptyList());
-
-                int totalInvestment = investments.stream()
-                        .mapToInt(r -> getInteger(r, "投资金额"))
-                        .sum();
-
-                project.setInvestment(totalInvestment);
-
-                List<InvestmentRecord> records2 = investments.stream()
-                        .map(r -> {
-                            InvestmentRecord record = new InvestmentRecord();
-                            String investorUsername = getStringValue(r, "投资人账号");
-                            record.setName(getStringValue(r, "投资人姓名"));
-                            record.setAmount(getInteger(r, "投资金额"));
-
-                            // 从投资人表查询职务、头像和初始额度
-                            Map<String, Object> investorData = investorMap.get(investorUsername);
-                            if (investorData != null) {
-                                record.setTitle(getStringValue(investorData, "职务"));
-                                record.setAvatar(getStringValue(investorData, "头像URL"));
-                                record.setInitialAmount(getInteger(investorData, "初始额度"));
-                            }
-
-                            return record;
-                        })
-                        .collect(Collectors.toList());
+                List<InvestmentRow> investments = investmentIndex.byProject(project.getId());
+
+                List<InvestmentRecord> records2 = new ArrayList<>(investments.size());
+                for (InvestmentRow r : investments) {
+                    InvestmentRecord record = new InvestmentRecord();
+                    record.setName(r.getInvestorName());
+                    record.setAmount(r.getAmount());
+
+                    // 按账号索引查询投资人的职务、头像和初始额度
+                    InvestorRow investorData = tableStore.findInvestorByUsername(r.getInvestorUsername());
+                    if (investorData != null) {
+                        record.setTitle(investorData.getTitle());
+                        record.setAvatar(investorData.getAvatar());
+                        record.setInitialAmount(investorData.getInitialAmount());
+                    }
+                    records2.add(record);
+                }
 
+                project.setInvestment(investmentIndex.projectTotal(project.getId()));
                 project.setInvestmentRecords(records2);
             }
         } catch (Exception e) {
@@ -722,47 +589,37 @@ public class HackathonService {
      */
     private void enrichProjectsWithInvestments(List<Project> projects) {
         try {
-            String tableId = feishuConfig.getInvestmentsTableId();
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
-
-            // 预加载所有投资人信息到Map中，避免重复查询
-            String investorsTableId = feishuConfig.getInvestorsTableId();
-            List<Map<String, Object>> investorRecords = feishuService.listRecords(investorsTableId);
-
             // 复用新方法
-            enrichProjectsWithInvestmentsFromData(projects, records, investorRecords);
+            enrichProjectsWithInvestmentsFromData(projects, investmentLedger.investmentIndex());
         } catch (Exception e) {
             log.warn("加载投资记录失败", e);
         }
     }
 
     /**
-     * 使用已获取的投资记录数据填充投资历史（新方法，避免重复API调用）
+     * 使用投资记录索引填充投资历史（只取该投资人的记录，不再过滤整张表）
      */
-    private void enrichInvestorWithHistoryFromData(Investor investor, List<Map<String, Object>> investmentRecords) {
+    private void enrichInvestorWithHistoryFromData(Investor investor, InvestmentIndex investmentIndex) {
         try {
-            List<InvestmentHistory> history = investmentRecords.stream()
-                    .filter(r -> investor.getUsername().equals(r.get("投资人账号")))
-                    .map(r -> {
-                        InvestmentHistory h = new InvestmentHistory();
-                        h.setProjectName((String) r.get("项目名称"));
-                        h.setAmount(getInteger(r, "投资金额"));
-                        Object timeObj = r.get("投资时间");
-                        if (timeObj != null) {
-                            // 飞书返回的是Unix时间戳（毫秒）
-                            long timestamp = getLong(r, "投资时间");
-                            h.setTime(LocalDateTime.ofInstant(
-                                java.time.Instant.ofEpochMilli(timestamp),
-                                java.time.ZoneId.systemDefault()
-                            ));
-                        }
-                        return h;
-                    })
-                    .collect(Collectors.toList());
+            List<InvestmentRow> investments = investmentIndex.byInvestor(investor.getUsername());
+            List<InvestmentHistory> history = new ArrayList<>(investments.size());
+            int invested = 0;
+            for (InvestmentRow r : investments) {
+                InvestmentHistory h = new InvestmentHistory();
+                h.setProjectName(r.getProjectName());
+                h.setAmount(r.getAmount());
+                if (r.getTime() != null) {
+                    // 飞书返回的是Unix时间戳（毫秒）
+                    h.setTime(LocalDateTime.ofInstant(
+                        java.time.Instant.ofEpochMilli(r.getTime()),
+                        java.time.ZoneId.systemDefault()
+                    ));
+                }
+                history.add(h);
+                invested += r.getAmount();
+            }
 
             investor.setInvestmentHistory(history);
-
-            int invested = history.stream().mapToInt(InvestmentHistory::getAmount).sum();
             investor.setInvestedAmount(invested);
 
             // 如果飞书表没有剩余额度数据，使用计算值
@@ -779,9 +636,7 @@ public class HackathonService {
      */
     private void enrichInvestorWithHistory(Investor investor) {
         try {
-            String tableId = feishuConfig.getInvestmentsTableId();
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
-            enrichInvestorWithHistoryFromData(investor, records);
+            enrichInvestorWithHistoryFromData(investor, investmentLedger.investmentIndex());
         } catch (Exception e) {
             log.warn("加载投资历史失败", e);
         }
@@ -790,7 +645,7 @@ public class HackathonService {
     /**
      * 使用已获取的配置数据计算排名（新方法，避免重复API调用）
      */
-    private void calculateRankingsFromData(List<Project> projects, List<Map<String, Object>> configRecords) {
+    private void calculateRankingsFromData(List<Project> projects, List<ConfigRow> configRecords) {
         CompetitionStage stage = getCurrentStageFromData(configRecords);
         calculateRankingsWithStage(projects, stage, configRecords);
     }
@@ -798,11 +653,11 @@ public class HackathonService {
     /**
      * 从已获取的配置数据中解析当前阶段
      */
-    private CompetitionStage getCurrentStageFromData(List<Map<String, Object>> configRecords) {
+    private CompetitionStage getCurrentStageFromData(List<ConfigRow> configRecords) {
         try {
-            for (Map<String, Object> record : configRecords) {
-                if ("current_stage".equals(record.get("配置项"))) {
-                    String stageCode = (String) record.get("配置值");
+            for (ConfigRow record : configRecords) {
+                if ("current_stage".equals(record.getKey())) {
+                    String stageCode = record.getValue();
 
                     if (stageCode != null && !stageCode.trim().isEmpty()) {
                         log.debug("使用飞书配置的阶段: {}", stageCode);
@@ -832,9 +687,9 @@ public class HackathonService {
 
     /**
      * 核心排名计算逻辑（重构后被两个方法共用）
+     * 这里只负责确定排名模式和晋级名单，排序由增量排名引擎完成
      */
-    private void calculateRankingsWithStage(List<Project> projects, CompetitionStage stage, List<Map<String, Object>> configRecords) {
-        int totalTeams = projects.size();
+    private void calculateRankingsWithStage(List<Project> projects, CompetitionStage stage, List<ConfigRow> configRecords) {
         int qualifiedCount = hackathonProperties.getQualifiedCount();
 
         if (stage == CompetitionStage.SELECTION) {
@@ -844,168 +699,37 @@ public class HackathonService {
                 clearQualifiedProjectsConfig();
             }
             // 海选期：按UV排名，前15名晋级
-            projects.sort((a, b) -> {
-                int cmp = Long.compare(b.getUv(), a.getUv());
-                if (cmp != 0) return cmp;
-                String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                return teamNumA.compareTo(teamNumB);
-            });
-
-            // 设置排名和晋级状态
-            for (int i = 0; i < projects.size(); i++) {
-                projects.get(i).setRank(i + 1);
-                projects.get(i).setQualified(i < qualifiedCount);
-            }
-
+            rankingEngine.rank(projects, RankingEngine.Mode.UV_TOP_N, Collections.emptySet(), qualifiedCount);
             log.debug("海选期排名计算完成，按UV排名");
+            return;
+        }
 
-        } else if (stage == CompetitionStage.LOCK) {
-            // 锁定期：晋级名单固定（从飞书配置表读取），晋级区和非晋级区分别按UV排序
-
-            // 步骤1：获取晋级项目ID列表（从飞书配置表）
-            List<Long> qualifiedProjectIds = (configRecords != null)
-                    ? resolveQualifiedProjectIdsFromData(projects, qualifiedCount, configRecords)
-                    : resolveQualifiedProjectIds(projects, qualifiedCount);
-
-            // 如果配置表为空，回退到按海选期规则计算
-            if (qualifiedProjectIds.isEmpty()) {
-                log.warn("锁定期未找到晋级项目配置，回退到按UV排名前{}名", qualifiedCount);
-                // 按UV排序
-                projects.sort((a, b) -> {
-                    int cmp = Long.compare(b.getUv(), a.getUv());
-                    if (cmp != 0) return cmp;
-                    String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                    String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                    return teamNumA.compareTo(teamNumB);
-                });
-                for (int i = 0; i < projects.size(); i++) {
-                    projects.get(i).setRank(i + 1);
-                    projects.get(i).setQualified(i < qualifiedCount);
-                }
-            } else {
-                // 步骤2：标记晋级状态
-                final Set<Long> finalQualifiedIds = new LinkedHashSet<>(qualifiedProjectIds);
-                projects.forEach(p -> p.setQualified(finalQualifiedIds.contains(p.getId())));
-
-                // 步骤3：分组并分别排序
-                List<Project> qualifiedProjects = projects.stream()
-                        .filter(Project::getQualified)
-                        .collect(Collectors.toList());
-                List<Project> nonQualifiedProjects = projects.stream()
-                        .filter(p -> !p.getQualified())
-                        .collect(Collectors.toList());
-
-                // 晋级区按UV排序
-                qualifiedProjects.sort((a, b) -> {
-                    int cmp = Long.compare(b.getUv(), a.getUv());
-                    if (cmp != 0) return cmp;
-                    String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                    String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                    return teamNumA.compareTo(teamNumB);
-                });
-
-                // 非晋级区按UV排序
-                nonQualifiedProjects.sort((a, b) -> {
-                    int cmp = Long.compare(b.getUv(), a.getUv());
-                    if (cmp != 0) return cmp;
-                    String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                    String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                    return teamNumA.compareTo(teamNumB);
-                });
-
-                // 步骤4：设置排名（晋级区和非晋级区分别计算）
-                for (int i = 0; i < qualifiedProjects.size(); i++) {
-                    qualifiedProjects.get(i).setRank(i + 1);
-                }
-                for (int i = 0; i < nonQualifiedProjects.size(); i++) {
-                    nonQualifiedProjects.get(i).setRank(i + 1);
-                }
+        if (stage != CompetitionStage.LOCK && stage != CompetitionStage.INVESTMENT && stage != CompetitionStage.ENDED) {
+            return;
+        }
 
-                // 步骤5：合并列表（晋级区在前）
-                projects.clear();
-                projects.addAll(qualifiedProjects);
-                projects.addAll(nonQualifiedProjects);
+        // 锁定期/投资期/结束期：晋级名单固定（从飞书配置表读取）
+        List<Long> qualifiedProjectIds = (configRecords != null)
+                ? resolveQualifiedProjectIdsFromData(projects, qualifiedCount, configRecords)
+                : resolveQualifiedProjectIds(projects, qualifiedCount);
 
-                log.debug("锁定期排名计算完成，晋级项目{}个，非晋级项目{}个", qualifiedProjects.size(), nonQualifiedProjects.size());
-            }
+        // 如果配置表为空，回退到按UV排名前15名
+        if (qualifiedProjectIds.isEmpty()) {
+            log.warn("{}未找到晋级项目配置，回退到按UV排名前{}名",
+                    stage == CompetitionStage.LOCK ? "锁定期" : "投资期", qualifiedCount);
+            rankingEngine.rank(projects, RankingEngine.Mode.UV_TOP_N, Collections.emptySet(), qualifiedCount);
+            return;
+        }
 
-        } else if (stage == CompetitionStage.INVESTMENT || stage == CompetitionStage.ENDED) {
-            // 投资期/结束期：晋级名单固定，使用加权排名算法
+        Set<Long> qualifiedIds = new LinkedHashSet<>(qualifiedProjectIds);
+        if (stage == CompetitionStage.LOCK) {
+            // 锁定期：晋级区和非晋级区分别按UV排序
+            rankingEngine.rank(projects, RankingEngine.Mode.LOCKED_BY_UV, qualifiedIds, qualifiedCount);
+            log.debug("锁定期排名计算完成，晋级项目{}个", qualifiedIds.size());
+        } else {
+            // 投资期/结束期：晋级区按投资金额排序，投资金额相同按UV、再按队伍序号排序；非晋级区按UV排序
             // 结束期：UV数据不再更新（由UVSyncScheduler控制），但使用相同的排序逻辑保持投资期的排名
-
-            // 步骤1：获取晋级项目ID列表
-            List<Long> qualifiedProjectIds = (configRecords != null)
-                    ? resolveQualifiedProjectIdsFromData(projects, qualifiedCount, configRecords)
-                    : resolveQualifiedProjectIds(projects, qualifiedCount);
-
-            // 如果配置表为空，回退到按UV排名前15名
-            if (qualifiedProjectIds.isEmpty()) {
-                log.warn("投资期未找到晋级项目配置，回退到按UV排名前{}名", qualifiedCount);
-                projects.sort((a, b) -> {
-                    int cmp = Long.compare(b.getUv(), a.getUv());
-                    if (cmp != 0) return cmp;
-                    String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                    String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                    return teamNumA.compareTo(teamNumB);
-                });
-                for (int i = 0; i < projects.size(); i++) {
-                    projects.get(i).setRank(i + 1);
-                    projects.get(i).setQualified(i < qualifiedCount);
-                }
-                return;
-            }
-
-            // 步骤2：标记晋级状态
-            final Set<Long> finalQualifiedIds = new LinkedHashSet<>(qualifiedProjectIds);
-            projects.forEach(p -> p.setQualified(finalQualifiedIds.contains(p.getId())));
-
-            // 步骤3：分组
-            List<Project> qualifiedProjects = projects.stream()
-                    .filter(Project::getQualified)
-                    .collect(Collectors.toList());
-            List<Project> nonQualifiedProjects = projects.stream()
-                    .filter(p -> !p.getQualified())
-                    .collect(Collectors.toList());
-
-            // 步骤4：晋级区直接按投资金额排序（100%投资金额）
-            // 投资金额相同时按UV排序，UV相同再按队伍序号排序
-            qualifiedProjects.sort((a, b) -> {
-                // 首先按投资额排序（降序）
-                int cmp = Integer.compare(b.getInvestment(), a.getInvestment());
-                if (cmp != 0) return cmp;
-                // 投资额相同时，按UV排序（降序）
-                cmp = Long.compare(b.getUv(), a.getUv());
-                if (cmp != 0) return cmp;
-                // UV也相同时，按队伍编号排序（升序）
-                int teamNumA = parseTeamNumber(a.getTeamNumber());
-                int teamNumB = parseTeamNumber(b.getTeamNumber());
-                return Integer.compare(teamNumA, teamNumB);
-            });
-
-            // 步骤5：非晋级区按UV排序
-            nonQualifiedProjects.sort((a, b) -> {
-                int cmp = Long.compare(b.getUv(), a.getUv());
-                if (cmp != 0) return cmp;
-                // UV相同时按队伍编号排序（升序）- 需要转为整数比较
-                int teamNumA = parseTeamNumber(a.getTeamNumber());
-                int teamNumB = parseTeamNumber(b.getTeamNumber());
-                return Integer.compare(teamNumA, teamNumB);
-            });
-
-            // 步骤6：设置排名
-            for (int i = 0; i < qualifiedProjects.size(); i++) {
-                qualifiedProjects.get(i).setRank(i + 1);
-            }
-            for (int i = 0; i < nonQualifiedProjects.size(); i++) {
-                nonQualifiedProjects.get(i).setRank(i + 1);
-            }
-
-            // 步骤7：合并列表
-            projects.clear();
-            projects.addAll(qualifiedProjects);
-            projects.addAll(nonQualifiedProjects);
-
+            rankingEngine.rank(projects, RankingEngine.Mode.LOCKED_BY_INVESTMENT, qualifiedIds, qualifiedCount);
             String stageName = stage == CompetitionStage.ENDED ? "结束期" : "投资期";
             log.debug("{}排名计算完成，晋级区按投资金额排序，投资金额相同按队伍序号排序", stageName);
         }
@@ -1014,14 +738,12 @@ public class HackathonService {
     /**
      * 从已获取的配置数据中解析晋级项目配置（新方法，避免重复API调用）
      */
-    private QualifiedProjectsConfig loadQualifiedProjectsConfigFromData(List<Map<String, Object>> configRecords) {
+    private QualifiedProjectsConfig loadQualifiedProjectsConfigFromData(List<ConfigRow> configRecords) {
         try {
-            for (Map<String, Object> record : configRecords) {
-                Object key = record.get("配置项");
-                if (key != null && "qualified_project_ids".equals(key.toString())) {
-                    String recordId = (String) record.get("record_id");
-                    Object valueObj = record.get("配置值");
-                    String idsStr = valueObj != null ? valueObj.toString() : null;
+            for (ConfigRow record : configRecords) {
+                if ("qualified_project_ids".equals(record.getKey())) {
+                    String recordId = record.getRecordId();
+                    String idsStr = record.getValue();
 
                     if (idsStr != null && !idsStr.trim().isEmpty()) {
                         Set<Long> ids = Arrays.stream(idsStr.split(","))
@@ -1046,9 +768,7 @@ public class HackathonService {
      */
     private QualifiedProjectsConfig loadQualifiedProjectsConfig() {
         try {
-            String tableId = feishuConfig.getConfigTableId();
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
-            return loadQualifiedProjectsConfigFromData(records);
+            return loadQualifiedProjectsConfigFromData(tableStore.getConfigRows());
         } catch (Exception e) {
             log.warn("获取晋级项目配置失败", e);
         }
@@ -1058,7 +778,7 @@ public class HackathonService {
     /**
      * 从已获取的配置数据中解析晋级项目ID列表（新方法，避免重复API调用）
      */
-    private List<Long> resolveQualifiedProjectIdsFromData(List<Project> projects, int qualifiedCount, List<Map<String, Object>> configRecords) {
+    private List<Long> resolveQualifiedProjectIdsFromData(List<Project> projects, int qualifiedCount, List<ConfigRow> configRecords) {
         QualifiedProjectsConfig config = loadQualifiedProjectsConfigFromData(configRecords);
         if (!config.getProjectIds().isEmpty()) {
             // 限制晋级项目数量，最多取qualifiedCount个
@@ -1117,18 +837,7 @@ public class HackathonService {
         }
 
         return projects.stream()
-                .sorted((a, b) -> {
-                    int cmp = Long.compare(
-                            Optional.ofNullable(b.getUv()).orElse(0L),
-                            Optional.ofNullable(a.getUv()).orElse(0L)
-                    );
-                    if (cmp != 0) {
-                        return cmp;
-                    }
-                    String teamNumA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
-                    String teamNumB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
-                    return teamNumA.compareTo(teamNumB);
-                })
+                .sorted(Comparator.comparingLong(RankingEngine::uvSortKey))
                 .limit(count)
                 .collect(Collectors.toList());
     }
@@ -1153,9 +862,11 @@ public class HackathonService {
 
             if (existingRecordId != null && !existingRecordId.isEmpty()) {
                 feishuService.updateRecord(tableId, existingRecordId, fields);
+                tableStore.mergeRecordFields(tableId, existingRecordId, fields);
             } else {
                 fields.put("配置项", "qualified_project_ids");
-                feishuService.createRecord(tableId, fields);
+                String recordId = feishuService.createRecord(tableId, fields);
+                tableStore.appendRecord(tableId, recordId, fields);
             }
         } catch (Exception e) {
             log.warn("写入晋级项目配置失败", e);
@@ -1165,7 +876,7 @@ public class HackathonService {
     /**
      * 从已获取的配置数据中清除晋级项目配置（新方法，避免重复API调用）
      */
-    private void clearQualifiedProjectsConfigFromData(List<Map<String, Object>> configRecords) {
+    private void clearQualifiedProjectsConfigFromData(List<ConfigRow> configRecords) {
         try {
             QualifiedProjectsConfig config = loadQualifiedProjectsConfigFromData(configRecords);
             if (config.getRecordId() == null || config.getProjectIds().isEmpty()) {
@@ -1176,6 +887,7 @@ public class HackathonService {
             Map<String, Object> fields = new HashMap<>();
             fields.put("配置值", "");
             feishuService.updateRecord(tableId, config.getRecordId(), fields);
+            tableStore.mergeRecordFields(tableId, config.getRecordId(), fields);
         } catch (Exception e) {
             log.warn("清空晋级项目配置失败", e);
         }
@@ -1195,24 +907,25 @@ public class HackathonService {
             Map<String, Object> fields = new HashMap<>();
             fields.put("配置值", "");
             feishuService.updateRecord(tableId, config.getRecordId(), fields);
+            tableStore.mergeRecordFields(tableId, config.getRecordId(), fields);
         } catch (Exception e) {
             log.warn("清空晋级项目配置失败", e);
         }
     }
 
-    private Map<String, Object> findRecordByField(String tableId, String fieldName, Object value) {
-        try {
-            // 直接使用全表扫描，飞书filter语法复杂且不稳定
-            // 投资人表和项目表数据量小（<100条），全表扫描性能可接受
-            List<Map<String, Object>> records = feishuService.listRecords(tableId);
-            return records.stream()
-                    .filter(record -> fieldValueEquals(record.get(fieldName), value))
-                    .findFirst()
-                    .orElse(null);
-        } catch (Exception e) {
-            log.error("查询字段 {}={} 失败", fieldName, value, e);
-            return null;
+    private ProjectRow findProjectRow(Long projectId) {
+        // 直接扫描本地副本，飞书filter语法复杂且不稳定
+        // 投资人表和项目表数据量小（<100条），全表扫描性能可接受
+        for (ProjectRow row : tableStore.getProjectRows()) {
+            if (row.getId() == projectId) {
+                return row;
+            }
         }
+        return null;
+    }
+
+    private InvestorRow findInvestorRow(String username) {
+        return tableStore.findInvestorByUsername(username);
     }
 
     private String buildFilterExpression(String fieldName, Object value) {
@@ -1235,37 +948,6 @@ public class HackathonService {
         return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
-    private boolean fieldValueEquals(Object recordValue, Object targetValue) {
-        // 两者都为null，相等
-        if (recordValue == null && targetValue == null) {
-            return true;
-        }
-        // 只有一个为null，不相等
-        if (recordValue == null || targetValue == null) {
-            return false;
-        }
-
-        // 都是数字类型，按数值比较
-        if (recordValue instanceof Number && targetValue instanceof Number) {
-            return Double.compare(
-                    ((Number) recordValue).doubleValue(),
-                    ((Number) targetValue).doubleValue()
-            ) == 0;
-        }
-
-        // 一个是数字一个是字符串，转字符串比较
-        if (recordValue instanceof Number || targetValue instanceof Number) {
-            String str1 = recordValue.toString().trim();
-            String str2 = targetValue.toString().trim();
-            return str1.equals(str2);
-        }
-
-        // 都是字符串或其他类型，转字符串比较（忽略前后空格）
-        String str1 = recordValue.toString().trim();
-        String str2 = targetValue.toString().trim();
-        return str1.equals(str2);
-    }
-
     private static class StageWindow {
         private final LocalDateTime start;
         private final LocalDateTime end;
@@ -1310,75 +992,16 @@ public class HackathonService {
         }
     }
 
-    private Long getLong(Map<String, Object> map, String key) {
-        if (map == null || key == null) {
-            return 0L;
-        }
-        Object value = map.get(key);
-        if (value == null) {
-            return 0L;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        try {
-            String strValue = value.toString().trim();
-            if (strValue.isEmpty()) {
-                return 0L;
-            }
-            return Long.parseLong(strValue);
-        } catch (NumberFormatException e) {
-            log.warn("字段{}的值{}无法转换为Long，返回默认值0", key, value);
-            return 0L;
-        }
-    }
-
-    private Integer getInteger(Map<String, Object> map, String key) {
-        if (map == null || key == null) {
-            return 0;
-        }
-        Object value = map.get(key);
-        if (value == null) {
-            return 0;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        try {
-            String strValue = value.toString().trim();
-            if (strValue.isEmpty()) {
-                return 0;
-            }
-            return Integer.parseInt(strValue);
-        } catch (NumberFormatException e) {
-            log.warn("字段{}的值{}无法转换为Integer，返回默认值0", key, value);
-            return 0;
-        }
-    }
-
-    /**
-     * 解析队伍编号为整数，用于排序
-     * 如果解析失败，返回999（排在最后）
-     */
-    private int parseTeamNumber(String teamNumber) {
-        if (teamNumber == null || teamNumber.trim().isEmpty()) {
-            return 999;
-        }
-        try {
-            return Integer.parseInt(teamNumber.trim());
-        } catch (NumberFormatException e) {
-            log.warn("队伍编号{}无法转换为整数，返回默认值999", teamNumber);
-            return 999;
-        }
-    }
-
     // ==================== 缓存管理方法 ====================
 
     /**
      * 清除所有缓存
-     * 用于测试时手动修改飞书数据后立即刷新
+     * 用于测试时手动修改飞书数据后立即刷新（同时重新加载本地表副本）
      */
     public void clearAllCache() {
+        tableStore.refreshAll();
+        investmentLedger.reload();
+        leaderboardCache.clear();
         cacheManager.getCacheNames().forEach(cacheName -> {
             var cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -0,0 +1,92 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.model.row.InvestmentRow;
+
+import java.util.*;
+
+/**
+ * 投资记录二级索引（按投资人账号、按项目ID），同时维护每个项目的投资总额
+ * 不可变对象，随投资记录表快照一起替换；追加投资时只复制受影响的分组，
+ * 查询某个投资人的历史或某个项目的投资不再扫描整张投资记录表
+ */
+final class InvestmentIndex {
+
+    static final InvestmentIndex EMPTY = new InvestmentIndex(
+            Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, List<InvestmentRow>> byInvestor;
+    private final Map<Long, List<InvestmentRow>> byProject;
+    private final Map<Long, Integer> projectTotals;
+
+    private InvestmentIndex(Map<String, List<InvestmentRow>> byInvestor,
+                            Map<Long, List<InvestmentRow>> byProject,
+                            Map<Long, Integer> projectTotals) {
+        this.byInvestor = byInvestor;
+        this.byProject = byProject;
+        this.projectTotals = projectTotals;
+    }
+
+    /**
+     * 从整张投资记录表构建索引（刷新、合并更新时调用）
+     */
+    static InvestmentIndex build(List<InvestmentRow> rows) {
+        return EMPTY.withAppended(rows);
+    }
+
+    /**
+     * 追加投资记录，返回新的索引（原索引不变）
+     */
+    InvestmentIndex withAppended(List<InvestmentRow> rows) {
+        if (rows.isEmpty()) {
+            return this;
+        }
+        Map<String, List<InvestmentRow>> investors = new HashMap<>(byInvestor);
+        Map<Long, List<InvestmentRow>> projects = new HashMap<>(byProject);
+        Map<Long, Integer> totals = new HashMap<>(projectTotals);
+
+        // 本次追加中新建的分组可以直接修改，沿用的分组先复制再追加
+        Set<Object> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (InvestmentRow row : rows) {
+            if (row.getInvestorUsername() != null) {
+                appendTo(investors, row.getInvestorUsername(), row, copied);
+            }
+            appendTo(projects, row.getProjectId(), row, copied);
+            totals.merge(row.getProjectId(), row.getAmount(), Integer::sum);
+        }
+        return new InvestmentIndex(investors, projects, totals);
+    }
+
+    private static <K> void appendTo(Map<K, List<InvestmentRow>> groups, K key, InvestmentRow row, Set<Object> copied) {
+        List<InvestmentRow> group = groups.get(key);
+        if (group == null || !copied.contains(group)) {
+            List<InvestmentRow> copy = group != null ? new ArrayList<>(group) : new ArrayList<>();
+            copied.add(copy);
+            groups.put(key, copy);
+            group = copy;
+        }
+        group.add(row);
+    }
+
+    /**
+     * 某个投资人的投资记录（按写入顺序，只读）
+     */
+    List<InvestmentRow> byInvestor(String username) {
+        List<InvestmentRow> rows = byInvestor.get(username);
+        return rows != null ? Collections.unmodifiableList(rows) : Collections.emptyList();
+    }
+
+    /**
+     * 某个项目的投资记录（按写入顺序，只读）
+     */
+    List<InvestmentRow> byProject(Long projectId) {
+        List<InvestmentRow> rows = byProject.get(projectId);
+        return rows != null ? Collections.unmodifiableList(rows) : Collections.emptyList();
+    }
+
+    /**
+     * 某个项目的投资总额
+     */
+    int projectTotal(Long projectId) {
+        return projectTotals.getOrDefault(projectId, 0);
+    }
+}
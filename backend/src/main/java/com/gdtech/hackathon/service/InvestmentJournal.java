@@ -0,0 +1,276 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 投资本地日志（追加写，批量fsync）
+ * 每笔投资在确认前先写入日志并落盘，多个并发写入合并为一次fsync；
+ * 服务启动时重放日志，把尚未写入飞书的投资重新放入写回队列
+ * 由 {@link InvestmentLedger} 持有，所有写入和压缩都在单独的日志线程中串行执行
+ */
+@Slf4j
+class InvestmentJournal {
+
+    static final String TYPE_ACCEPTED = "accepted";
+    static final String TYPE_CREATED = "created";
+    static final String TYPE_REJECTED = "rejected";
+    static final String TYPE_BALANCE_SYNCED = "balanceSynced";
+    static final String TYPE_DEAD_LETTER = "deadLetter";
+
+    private static final TypeReference<Map<String, Object>> ENTRY_TYPE = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "investment-journal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private FileChannel channel;
+    private volatile boolean running = true;
+    private volatile boolean compactRequested;
+    private volatile BooleanSupplier compactCondition = () -> false;
+
+    InvestmentJournal(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取日志中已有的全部条目（启动时调用，忽略最后一行不完整的写入）
+     */
+    List<Map<String, Object>> readAll() throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(objectMapper.readValue(line, ENTRY_TYPE));
+                } catch (IOException e) {
+                    log.warn("跳过无法解析的投资日志行: {}", line);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 打开日志文件并启动日志线程
+     *
+     * @param compactCondition 判断所有条目是否都已写入飞书，满足时日志可以清空
+     */
+    void open(BooleanSupplier compactCondition) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.compactCondition = compactCondition;
+        executor.execute(this::writeLoop);
+        log.info("投资日志已打开: {}", path.toAbsolutePath());
+    }
+
+    /**
+     * 追加一条日志并等待落盘
+     * 等待超时时撤销该条写入（日志线程不会再写它）；如果日志线程已经开始写，则等它写完再返回结果，
+     * 保证调用方看到的成功/失败与日志文件中的内容一致
+     */
+    void append(Map<String, Object> entry) {
+        PendingWrite write;
+        try {
+            write = new PendingWrite(objectMapper.writeValueAsBytes(entry));
+        } catch (IOException e) {
+            throw new IllegalStateException("投资日志序列化失败", e);
+        }
+        queue.add(write);
+        try {
+            write.done.get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.cancel();
+            throw new IllegalStateException("等待投资日志落盘被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("投资日志写入失败", e);
+        } catch (TimeoutException e) {
+            if (write.cancel()) {
+                throw new IllegalStateException("投资日志落盘超时", e);
+            }
+            awaitClaimed(write);
+        }
+    }
+
+    /**
+     * 等待日志线程已开始写入的条目写完
+     */
+    private static void awaitClaimed(PendingWrite write) {
+        try {
+            write.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待投资日志落盘被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("投资日志写入失败", e);
+        }
+    }
+
+    /**
+     * 追加一条日志但不等待落盘（用于"已写入飞书"这类可以重放修正的标记）
+     */
+    void appendAsync(Map<String, Object> entry) {
+        try {
+            queue.add(new PendingWrite(objectMapper.writeValueAsBytes(entry)));
+        } catch (IOException e) {
+            log.warn("投资日志序列化失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 请求在空闲时清空日志
+     */
+    void requestCompact() {
+        compactRequested = true;
+    }
+
+    /**
+     * 停止日志线程（已入队的条目会先写完）
+     */
+    void close() {
+        running = false;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (Exception e) {
+            log.warn("关闭投资日志失败: {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    compactIfIdle();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                // 已被调用方撤销（等待超时）的条目不再写入
+                batch.removeIf(write -> !write.claim());
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 一批条目顺序写入后只调用一次fsync，再统一通知等待方
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            int size = 0;
+            for (PendingWrite write : batch) {
+                size += write.bytes.length + 1;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (PendingWrite write : batch) {
+                buffer.put(write.bytes).put((byte) '\n');
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            for (PendingWrite write : batch) {
+                write.done.complete(null);
+            }
+        } catch (Exception e) {
+            // 已开始写入的条目必须通知等待方，否则 append 会一直等待
+            log.error("投资日志写入失败: {} 条", batch.size(), e);
+            for (PendingWrite write : batch) {
+                write.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 在日志线程中执行压缩，与追加写入天然串行，不会截掉刚写入的条目
+     */
+    private void compactIfIdle() {
+        if (!compactRequested || !queue.isEmpty() || !compactCondition.getAsBoolean()) {
+            return;
+        }
+        try {
+            if (channel.size() > 0) {
+                channel.truncate(0);
+                channel.force(true);
+                log.debug("投资日志中的投资均已写入飞书，日志已清空");
+            }
+            compactRequested = false;
+        } catch (IOException e) {
+            log.warn("清空投资日志失败: {}", e.getMessage());
+        }
+    }
+
+    private static class PendingWrite {
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int CANCELLED = 2;
+
+        private final byte[] bytes;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        PendingWrite(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * 日志线程开始写入前调用，返回false表示已被撤销
+         */
+        boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        /**
+         * 调用方撤销尚未开始写入的条目，返回false表示日志线程已经开始写入
+         */
+        boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+}
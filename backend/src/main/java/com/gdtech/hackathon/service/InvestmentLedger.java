@@ -0,0 +1,780 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.config.FeishuConfig;
+import com.gdtech.hackathon.config.HackathonProperties;
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import com.gdtech.hackathon.model.row.InvestorRow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 投资账本
+ * 投资人剩余额度以内存为准，使用CAS原子扣减，投资受理后立即返回；
+ * 投资记录和剩余额度通过后台单线程写回队列（write-behind）批量异步写入飞书
+ * 受理前先写入本地投资日志并落盘，服务重启后重放日志，未写入飞书的投资不会丢失
+ */
+@Slf4j
+@Service
+public class InvestmentLedger {
+
+    // 写回线程单批最多合并的投资笔数（与飞书批量新增上限一致）
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private final FeishuService feishuService;
+    private final FeishuTableStore tableStore;
+    private final FeishuConfig feishuConfig;
+
+    /**
+     * 投资人账号 -> 剩余额度（首次访问时从投资人表加载，之后以内存为准）
+     */
+    private final Map<String, AtomicInteger> balances = new ConcurrentHashMap<>();
+
+    /**
+     * 已受理但尚未写入飞书的投资（按受理顺序）
+     */
+    private final Queue<PendingInvestment> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 写回队列
+     */
+    private final BlockingQueue<PendingInvestment> writeQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * 剩余额度写入飞书失败、需要重试的投资人
+     */
+    private final Set<String> dirtyBalances = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 重放日志得到的、尚未反映到投资人表剩余额度中的扣减（投资人账号 -> 扣减列表）
+     * 投资人首次加载剩余额度时，在投资人表的值上扣除
+     */
+    private final Map<String, List<JournaledDebit>> unsyncedDebits = new ConcurrentHashMap<>();
+
+    /**
+     * 已扣减额度、正在写日志但尚未进入待写入列表的投资数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 受理投资持有读锁，重新加载剩余额度持有写锁，避免重置账本时丢失并发受理的扣减
+     */
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    private final InvestmentJournal journal;
+    private final ObjectMapper objectMapper;
+    private final Path deadLetterPath;
+    private final int maxWriteAttempts;
+
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    public InvestmentLedger(FeishuService feishuService,
+                            FeishuTableStore tableStore,
+                            FeishuConfig feishuConfig,
+                            HackathonProperties hackathonProperties,
+                            ObjectMapper objectMapper) {
+        this.feishuService = feishuService;
+        this.tableStore = tableStore;
+        this.feishuConfig = feishuConfig;
+        this.objectMapper = objectMapper;
+        HackathonProperties.Journal journalConfig = hackathonProperties.getJournal();
+        this.journal = new InvestmentJournal(Paths.get(journalConfig.getPath()), objectMapper);
+        this.deadLetterPath = Paths.get(journalConfig.getDeadLetterPath());
+        this.maxWriteAttempts = Math.max(1, journalConfig.getMaxWriteAttempts());
+    }
+
+    /**
+     * 重放投资日志、打开日志文件并启动写回线程
+     */
+    @PostConstruct
+    public void startWriter() throws IOException {
+        replayJournal();
+        journal.open(this::isSettled);
+
+        writerThread = new Thread(this::writeLoop, "investment-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 停机时等待写回队列清空（最多30秒），未写完的投资在下次启动时从日志重放
+     */
+    @PreDestroy
+    public void stopWriter() {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.warn("停机时仍有 {} 笔投资未写入飞书，下次启动时从投资日志重放", pending.size());
+        }
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * 受理一笔投资：原子扣减剩余额度，写入投资日志并落盘后加入写回队列
+     *
+     * @param investor 投资人行
+     * @param fields   投资记录字段
+     * @param amount   投资金额
+     * @return 扣减后的剩余额度
+     * @throws IllegalStateException 剩余额度不足或投资日志写入失败
+     */
+    public int accept(InvestorRow investor, Map<String, Object> fields, int amount) {
+        String username = investor.getUsername();
+
+        reloadLock.readLock().lock();
+        inFlight.incrementAndGet();
+        try {
+            AtomicInteger balance = balanceOf(investor);
+
+            int current;
+            int updated;
+            do {
+                current = balance.get();
+                if (amount > current) {
+                    throw new IllegalStateException("投资金额超过剩余额度");
+                }
+                updated = current - amount;
+            } while (!balance.compareAndSet(current, updated));
+
+            PendingInvestment entry = new PendingInvestment(UUID.randomUUID().toString(), username,
+                    investor.getRecordId(), Collections.unmodifiableMap(new HashMap<>(fields)));
+
+            Map<String, Object> journalEntry = new LinkedHashMap<>();
+            journalEntry.put("type", InvestmentJournal.TYPE_ACCEPTED);
+            journalEntry.put("id", entry.id);
+            journalEntry.put("username", username);
+            journalEntry.put("investorRecordId", entry.investorRecordId);
+            journalEntry.put("balance", updated);
+            journalEntry.put("fields", entry.fields);
+            try {
+                journal.append(journalEntry);
+            } catch (IllegalStateException e) {
+                // 日志未落盘则不受理，退回已扣减的额度；
+                // 追加一条拒绝记录，万一受理记录已经部分落盘，重放时也不会把它当作已受理
+                balance.addAndGet(amount);
+                rejectInJournal(entry);
+                log.error("投资日志写入失败，已退回额度: {}", username, e);
+                throw new IllegalStateException("投资暂时无法受理，请稍后重试");
+            }
+
+            pending.add(entry);
+            writeQueue.add(entry);
+            log.debug("投资已受理: {} 扣减 {} 万元 ({}->{})，待写入飞书 {} 笔",
+                    username, amount, current, updated, pending.size());
+            return updated;
+        } finally {
+            inFlight.decrementAndGet();
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    private void rejectInJournal(PendingInvestment entry) {
+        // 扣减期间写回线程可能已经把扣减后的额度写入飞书，标记为需要重新写回
+        if (entry.investorRecordId != null) {
+            dirtyBalances.add(entry.username + "|" + entry.investorRecordId);
+        }
+        Map<String, Object> journalEntry = new LinkedHashMap<>();
+        journalEntry.put("type", InvestmentJournal.TYPE_REJECTED);
+        journalEntry.put("id", entry.id);
+        try {
+            journal.appendAsync(journalEntry);
+        } catch (Exception e) {
+            log.warn("投资拒绝记录写入日志失败: {}", entry.id, e);
+        }
+    }
+
+    /**
+     * 获取投资人当前剩余额度（账本中尚未加载时返回null）
+     */
+    public Integer getBalance(String username) {
+        AtomicInteger balance = username != null ? balances.get(username.trim()) : null;
+        return balance != null ? balance.get() : null;
+    }
+
+    /**
+     * 投资记录索引：本地表副本的索引 + 已受理尚未写入飞书的投资
+     * 没有待写入投资时直接返回表副本的索引；否则只把待写入的投资追加到索引副本中
+     */
+    InvestmentIndex investmentIndex() {
+        // 先读待写入列表再读表副本，保证写回过程中同一笔投资既不丢失也不重复
+        List<PendingInvestment> pendingSnapshot = new ArrayList<>(pending);
+        InvestmentIndex index = tableStore.getInvestmentIndex();
+        if (pendingSnapshot.isEmpty()) {
+            return index;
+        }
+
+        List<InvestmentRow> unpersisted = new ArrayList<>(pendingSnapshot.size());
+        for (PendingInvestment entry : pendingSnapshot) {
+            // recordId为空说明尚未追加到表副本；否则在该投资人的记录中确认是否已经追加
+            String recordId = entry.recordId;
+            if (recordId == null || !containsRecord(index.byInvestor(entry.row.getInvestorUsername()), recordId)) {
+                unpersisted.add(entry.row);
+            }
+        }
+        return index.withAppended(unpersisted);
+    }
+
+    private static boolean containsRecord(List<InvestmentRow> rows, String recordId) {
+        for (InvestmentRow row : rows) {
+            if (recordId.equals(row.getRecordId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 重新从投资人表加载剩余额度
+     * 写回队列未清空时跳过，避免覆盖尚未写入飞书的扣减
+     */
+    public void reload() {
+        // 持有写锁期间没有正在受理的投资，检查和清空之间不会插入新的扣减
+        reloadLock.writeLock().lock();
+        try {
+            if (!isSettled()) {
+                log.warn("仍有 {} 笔投资未写入飞书，跳过账本重新加载", pending.size());
+                return;
+            }
+            balances.clear();
+            // 已全部写回飞书，重放得到的扣减都已反映在投资人表中
+            unsyncedDebits.clear();
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+        log.info("投资账本已重置，剩余额度将从投资人表重新加载");
+    }
+
+    /**
+     * 账本统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadedInvestors", balances.size());
+        stats.put("pendingWrites", pending.size());
+        stats.put("dirtyBalances", dirtyBalances.size());
+        return stats;
+    }
+
+    /**
+     * 所有已受理的投资和剩余额度是否都已写入飞书
+     */
+    private boolean isSettled() {
+        return inFlight.get() == 0 && pending.isEmpty() && dirtyBalances.isEmpty();
+    }
+
+    private AtomicInteger balanceOf(InvestorRow investor) {
+        return balances.computeIfAbsent(investor.getUsername(), k -> loadBalance(k, investor));
+    }
+
+    /**
+     * 以投资人表中的剩余额度为准，扣除重放日志中尚未写回飞书的投资
+     */
+    private AtomicInteger loadBalance(String username, InvestorRow investor) {
+        int remaining = investor != null ? investor.getRemainingAmount() : 0;
+        List<JournaledDebit> debits = unsyncedDebits.remove(username);
+        return new AtomicInteger(remaining - unreflectedAmount(debits, remaining));
+    }
+
+    // ==================== 写回飞书 ====================
+
+    private void writeLoop() {
+        List<PendingInvestment> batch = new ArrayList<>();
+        while (running) {
+            try {
+                PendingInvestment first = writeQueue.poll(5, TimeUnit.SECONDS);
+                if (first != null) {
+                    // 把队列中已积压的投资合并为一批，按飞书批量上限分组写入
+                    batch.add(first);
+                    writeQueue.drainTo(batch, WRITE_BATCH_SIZE - 1);
+                    persistWithRetry(batch);
+                    batch.clear();
+                }
+                if (writeQueue.isEmpty()) {
+                    if (!dirtyBalances.isEmpty()) {
+                        writeBalances(new ArrayList<>(dirtyBalances));
+                    }
+                    if (isSettled()) {
+                        journal.requestCompact();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("投资写回线程异常", e);
+            }
+        }
+    }
+
+    private void persistWithRetry(List<PendingInvestment> batch) throws InterruptedException {
+        long backoff = 1000;
+        List<List<PendingInvestment>> remaining = Collections.singletonList(batch);
+        for (int attempt = 1; running; attempt++) {
+            // 每组按上次发送时的原样重试，组内投资不变，client_token 也不变
+            List<List<PendingInvestment>> failed = new ArrayList<>();
+            for (List<PendingInvestment> group : remaining) {
+                failed.addAll(persistSplitting(group));
+            }
+            remaining = failed;
+            if (remaining.isEmpty()) {
+                return;
+            }
+            int failedCount = 0;
+            for (List<PendingInvestment> group : remaining) {
+                failedCount += group.size();
+            }
+            if (attempt >= maxWriteAttempts) {
+                log.error("投资写入飞书失败 {} 次，转入死信文件: {} 笔", attempt, failedCount);
+                for (List<PendingInvestment> group : remaining) {
+                    deadLetter(group);
+                }
+                return;
+            }
+            log.error("投资写入飞书失败，{}ms 后重试: {} 笔", backoff, failedCount);
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, 30_000);
+        }
+    }
+
+    /**
+     * 写入一组投资，返回需要重试的分组
+     * 飞书明确拒绝（返回错误码）时本组没有写入任何记录，对半拆分定位无法写入的记录，其余投资照常写入；
+     * 前一半全部失败且后一半整组也失败时（多半是飞书暂时不可用）不再继续拆分
+     * 超时、连接中断等结果未知的失败不拆分：飞书可能已经提交，只有原样重试同一组，client_token 才能避免重复新增
+     *
+     * @return 写入失败的分组，每组保持本次发送时的组成
+     */
+    private List<List<PendingInvestment>> persistSplitting(List<PendingInvestment> batch) {
+        try {
+            persist(batch);
+            return Collections.emptyList();
+        } catch (FeishuApiException e) {
+            log.warn("飞书拒绝写入投资(code={}): {} 笔", e.getCode(), batch.size(), e);
+            if (batch.size() == 1) {
+                return Collections.singletonList(batch);
+            }
+        } catch (Exception e) {
+            log.warn("投资写入飞书结果未知，稍后原样重试: {} 笔", batch.size(), e);
+            return Collections.singletonList(batch);
+        }
+
+        int mid = batch.size() / 2;
+        List<PendingInvestment> first = new ArrayList<>(batch.subList(0, mid));
+        List<PendingInvestment> second = new ArrayList<>(batch.subList(mid, batch.size()));
+        List<List<PendingInvestment>> failed = new ArrayList<>(persistSplitting(first));
+        int firstFailed = 0;
+        for (List<PendingInvestment> group : failed) {
+            firstFailed += group.size();
+        }
+        if (firstFailed < first.size()) {
+            failed.addAll(persistSplitting(second));
+            return failed;
+        }
+        try {
+            persist(second);
+        } catch (Exception e) {
+            failed.add(second);
+        }
+        return failed;
+    }
+
+    /**
+     * 多次写入失败的投资写入死信文件等待人工补录，并移出待写入列表，不再阻塞后续投资
+     * 投资已受理，剩余额度的扣减保留；日志中记录死信标记，重放时不再重新写入
+     */
+    private void deadLetter(List<PendingInvestment> batch) {
+        for (PendingInvestment entry : batch) {
+            if (entry.recordId == null) {
+                Map<String, Object> deadLetter = new LinkedHashMap<>();
+                deadLetter.put("id", entry.id);
+                deadLetter.put("username", entry.username);
+                deadLetter.put("fields", entry.fields);
+                deadLetter.put("time", System.currentTimeMillis());
+                try {
+                    writeDeadLetter(deadLetter);
+                } catch (IOException e) {
+                    log.error("投资死信写入失败，投资记录: {}", deadLetter, e);
+                }
+
+                Map<String, Object> journalEntry = new LinkedHashMap<>();
+                journalEntry.put("type", InvestmentJournal.TYPE_DEAD_LETTER);
+                journalEntry.put("id", entry.id);
+                journal.appendAsync(journalEntry);
+            }
+            pending.remove(entry);
+        }
+    }
+
+    private void writeDeadLetter(Map<String, Object> deadLetter) throws IOException {
+        Path parent = deadLetterPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        byte[] line = (objectMapper.writeValueAsString(deadLetter) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(deadLetterPath, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 写入一批投资：一次批量新增投资记录，再一次批量更新涉及的投资人剩余额度
+     */
+    private void persist(List<PendingInvestment> batch) {
+        long startTime = System.currentTimeMillis();
+        String investmentsTableId = feishuConfig.getInvestmentsTableId();
+
+        // 重试时跳过已经写入飞书的投资
+        List<PendingInvestment> toCreate = new ArrayList<>(batch.size());
+        for (PendingInvestment entry : batch) {
+            if (entry.recordId == null) {
+                toCreate.add(entry);
+            }
+        }
+
+        if (!toCreate.isEmpty()) {
+            List<Map<String, Object>> fieldsList = new ArrayList<>(toCreate.size());
+            for (PendingInvestment entry : toCreate) {
+                fieldsList.add(entry.fields);
+            }
+            List<String> recordIds = feishuService.batchCreateRecords(investmentsTableId, fieldsList,
+                    clientToken(toCreate));
+
+            // 顺序很重要：先记录recordId、再追加到表副本、最后移出待写入列表
+            Map<String, Map<String, Object>> appended = new LinkedHashMap<>();
+            for (int i = 0; i < toCreate.size(); i++) {
+                PendingInvestment entry = toCreate.get(i);
+                entry.recordId = recordIds.get(i);
+                appended.put(entry.recordId, entry.fields);
+
+                Map<String, Object> journalEntry = new LinkedHashMap<>();
+                journalEntry.put("type", InvestmentJournal.TYPE_CREATED);
+                journalEntry.put("id", entry.id);
+                journalEntry.put("recordId", entry.recordId);
+                journal.appendAsync(journalEntry);
+            }
+            tableStore.appendRecords(investmentsTableId, appended);
+        }
+
+        Set<String> balanceKeys = new LinkedHashSet<>();
+        for (PendingInvestment entry : batch) {
+            if (entry.investorRecordId != null) {
+                balanceKeys.add(entry.username + "|" + entry.investorRecordId);
+            }
+        }
+        writeBalances(balanceKeys);
+
+        for (PendingInvestment entry : batch) {
+            pending.remove(entry);
+        }
+        log.info("[投资写回] {} 笔投资写入飞书耗时: {}ms, 更新 {} 个投资人剩余额度",
+                batch.size(), System.currentTimeMillis() - startTime, balanceKeys.size());
+    }
+
+    /**
+     * 一组投资的幂等键：由组内投资ID按顺序组成，同一组重试时不变
+     */
+    private static String clientToken(List<PendingInvestment> entries) {
+        StringBuilder key = new StringBuilder("investments");
+        for (PendingInvestment entry : entries) {
+            key.append(':').append(entry.id);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 把账本中的当前剩余额度批量写入投资人表（写入的是最新值，重复写入无副作用）
+     * 只有实际写入成功的投资人（按飞书批量上限分组，逐组确认）才移出待同步集合；
+     * 失败时对尚未写入的部分对半拆分，隔离无法更新的记录
+     *
+     * @param balanceKeys "投资人账号|投资人recordId"
+     * @return 写入成功的投资人数
+     */
+    private int writeBalances(Collection<String> balanceKeys) {
+        Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+        List<String> writtenKeys = new ArrayList<>(balanceKeys.size());
+        for (String key : balanceKeys) {
+            int idx = key.indexOf('|');
+            Integer balance;
+            try {
+                balance = balanceToWrite(key.substring(0, idx));
+            } catch (Exception e) {
+                // 剩余额度暂时无法加载，保留在待同步集合中下次重试
+                dirtyBalances.add(key);
+                log.warn("加载投资人剩余额度失败，稍后重试: {}", key.substring(0, idx));
+                continue;
+            }
+            writtenKeys.add(key);
+            if (balance == null) {
+                // 账本中没有该投资人且没有待扣减，投资人表中的值已是最新
+                continue;
+            }
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(InvestorRow.F_REMAINING_AMOUNT, balance);
+            updates.put(key.substring(idx + 1), fields);
+        }
+        if (updates.isEmpty()) {
+            dirtyBalances.removeAll(writtenKeys);
+            return writtenKeys.size();
+        }
+
+        // 每组写入飞书成功后立即更新本地表副本、移出待同步集合；后续组失败时只重试未写入的投资人
+        Set<String> syncedKeys = new HashSet<>();
+        try {
+            String investorsTableId = feishuConfig.getInvestorsTableId();
+            feishuService.batchUpdateRecords(investorsTableId, updates, written -> {
+                tableStore.mergeRecords(investorsTableId, written);
+                List<String> chunkKeys = new ArrayList<>(written.size());
+                for (String key : writtenKeys) {
+                    if (written.containsKey(key.substring(key.indexOf('|') + 1))) {
+                        chunkKeys.add(key);
+                    }
+                }
+                dirtyBalances.removeAll(chunkKeys);
+                journalBalancesSynced(written, chunkKeys);
+                syncedKeys.addAll(chunkKeys);
+            });
+            dirtyBalances.removeAll(writtenKeys);
+            return writtenKeys.size();
+        } catch (Exception e) {
+            writtenKeys.removeAll(syncedKeys);
+            dirtyBalances.addAll(writtenKeys);
+            log.error("批量更新 {} 个投资人剩余额度失败（已写入 {} 个），稍后重试",
+                    updates.size() - syncedKeys.size(), syncedKeys.size(), e);
+        }
+
+        int written = syncedKeys.size();
+        if (writtenKeys.size() <= 1) {
+            return written;
+        }
+        // 前一半全部失败时（多半是飞书暂时不可用）不再拆分后一半
+        int mid = writtenKeys.size() / 2;
+        int firstHalf = writeBalances(new ArrayList<>(writtenKeys.subList(0, mid)));
+        written += firstHalf;
+        if (firstHalf > 0 || mid == 1) {
+            written += writeBalances(new ArrayList<>(writtenKeys.subList(mid, writtenKeys.size())));
+        }
+        return written;
+    }
+
+    /**
+     * 要写入投资人表的剩余额度；账本中尚未加载、但重放日志中有待扣减时先加载
+     *
+     * @return 剩余额度，账本中没有该投资人且没有待扣减时返回null
+     */
+    private Integer balanceToWrite(String username) {
+        AtomicInteger balance = balances.get(username);
+        if (balance == null && unsyncedDebits.containsKey(username)) {
+            InvestorRow investor = tableStore.findInvestorByUsername(username);
+            if (investor != null) {
+                balance = balances.computeIfAbsent(username, k -> loadBalance(k, investor));
+            }
+        }
+        return balance != null ? balance.get() : null;
+    }
+
+    /**
+     * 记录已写入飞书的剩余额度，重放时据此判断哪些扣减已经反映在投资人表中
+     */
+    private void journalBalancesSynced(Map<String, Map<String, Object>> updates, Collection<String> balanceKeys) {
+        for (String key : balanceKeys) {
+            int idx = key.indexOf('|');
+            Map<String, Object> fields = updates.get(key.substring(idx + 1));
+            if (fields == null) {
+                continue;
+            }
+            Map<String, Object> journalEntry = new LinkedHashMap<>();
+            journalEntry.put("type", InvestmentJournal.TYPE_BALANCE_SYNCED);
+            journalEntry.put("username", key.substring(0, idx));
+            journalEntry.put("balance", fields.get(InvestorRow.F_REMAINING_AMOUNT));
+            journal.appendAsync(journalEntry);
+        }
+    }
+
+    // ==================== 日志重放 ====================
+
+    /**
+     * 重放投资日志：
+     * 1. 有拒绝记录的投资视为未受理，直接忽略
+     * 2. 剩余额度以投资人表为准（管理员调整的额度不会被覆盖），只扣除尚未写回飞书的投资
+     * 3. 没有"已写入飞书"或死信标记、且本地表副本中也找不到的投资重新加入写回队列
+     */
+    @SuppressWarnings("unchecked")
+    private void replayJournal() throws IOException {
+        List<Map<String, Object>> entries = journal.readAll();
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<String> rejected = new HashSet<>();
+        for (Map<String, Object> entry : entries) {
+            if (InvestmentJournal.TYPE_REJECTED.equals(entry.get("type"))) {
+                rejected.add((String) entry.get("id"));
+            }
+        }
+
+        Map<String, Map<String, Object>> accepted = new LinkedHashMap<>();
+        Set<String> created = new HashSet<>();
+        Map<String, List<JournaledDebit>> debitsByInvestor = new HashMap<>();
+        for (Map<String, Object> entry : entries) {
+            String id = (String) entry.get("id");
+            Object type = entry.get("type");
+            if (InvestmentJournal.TYPE_ACCEPTED.equals(type) && !rejected.contains(id)) {
+                accepted.put(id, entry);
+                Map<String, Object> fields = (Map<String, Object>) entry.get("fields");
+                debitsByInvestor.computeIfAbsent((String) entry.get("username"), k -> new ArrayList<>())
+                        .add(new JournaledDebit(((Number) entry.get("balance")).intValue(),
+                                InvestmentRow.from(fields).getAmount()));
+            } else if (InvestmentJournal.TYPE_CREATED.equals(type)
+                    || InvestmentJournal.TYPE_DEAD_LETTER.equals(type)) {
+                created.add(id);
+            } else if (InvestmentJournal.TYPE_BALANCE_SYNCED.equals(type)) {
+                List<JournaledDebit> debits = debitsByInvestor.get((String) entry.get("username"));
+                if (debits != null) {
+                    dropReflected(debits, ((Number) entry.get("balance")).intValue());
+                }
+            }
+        }
+
+        Set<String> persistedKeys = new HashSet<>();
+        try {
+            for (InvestmentRow row : tableStore.getInvestmentRows()) {
+                persistedKeys.add(investmentKey(row));
+            }
+        } catch (Exception e) {
+            log.warn("读取投资记录失败，重放时无法排除已写入飞书的投资: {}", e.getMessage());
+        }
+
+        int requeued = 0;
+        for (Map<String, Object> entry : accepted.values()) {
+            String id = (String) entry.get("id");
+            String username = (String) entry.get("username");
+            String investorRecordId = (String) entry.get("investorRecordId");
+            Map<String, Object> fields = (Map<String, Object>) entry.get("fields");
+
+            if (investorRecordId != null && !debitsByInvestor.getOrDefault(username, List.of()).isEmpty()) {
+                dirtyBalances.add(username + "|" + investorRecordId);
+            }
+
+            PendingInvestment pendingInvestment = new PendingInvestment(id, username, investorRecordId,
+                    Collections.unmodifiableMap(new HashMap<>(fields)));
+            if (!created.contains(id) && !persistedKeys.contains(investmentKey(pendingInvestment.row))) {
+                pending.add(pendingInvestment);
+                writeQueue.add(pendingInvestment);
+                requeued++;
+            }
+        }
+
+        debitsByInvestor.forEach((username, debits) -> {
+            if (!debits.isEmpty()) {
+                unsyncedDebits.put(username, debits);
+            }
+        });
+        // 投资人表可读时立即恢复剩余额度，否则在投资人首次投资时再扣除
+        for (String username : new ArrayList<>(unsyncedDebits.keySet())) {
+            try {
+                InvestorRow investor = tableStore.findInvestorByUsername(username);
+                if (investor != null) {
+                    balances.put(username, loadBalance(username, investor));
+                }
+            } catch (Exception e) {
+                log.warn("读取投资人剩余额度失败，首次访问时再恢复: {}", username);
+            }
+        }
+        log.info("重放投资日志: {} 笔投资（{} 笔已拒绝），其中 {} 笔尚未写入飞书已重新加入写回队列，{} 个投资人的剩余额度待同步",
+                accepted.size(), rejected.size(), requeued, dirtyBalances.size());
+    }
+
+    /**
+     * 尚未反映到投资人表剩余额度中的扣减总额
+     * 投资人表当前的剩余额度等于某笔扣减后的额度时，说明该笔及之前的扣减都已写回（写回与标记之间宕机的情况）
+     */
+    static int unreflectedAmount(List<JournaledDebit> debits, int remaining) {
+        if (debits == null || debits.isEmpty()) {
+            return 0;
+        }
+        List<JournaledDebit> unreflected = new ArrayList<>(debits);
+        dropReflected(unreflected, remaining);
+        int total = 0;
+        for (JournaledDebit debit : unreflected) {
+            total += debit.amount;
+        }
+        return total;
+    }
+
+    /**
+     * 剩余额度已写为 balance：去掉扣减后额度等于 balance 的最后一笔及其之前的扣减
+     */
+    static void dropReflected(List<JournaledDebit> debits, int balance) {
+        for (int i = debits.size() - 1; i >= 0; i--) {
+            if (debits.get(i).balance == balance) {
+                debits.subList(0, i + 1).clear();
+                return;
+            }
+        }
+    }
+
+    private static String investmentKey(InvestmentRow row) {
+        return row.getInvestorUsername() + "|" + row.getProjectId() + "|" + row.getAmount() + "|" + row.getTime();
+    }
+
+    /**
+     * 日志中的一笔扣减
+     */
+    static class JournaledDebit {
+        private final int balance;
+        private final int amount;
+
+        JournaledDebit(int balance, int amount) {
+            this.balance = balance;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * 已受理、待写入飞书的投资
+     */
+    private static class PendingInvestment {
+        private final String id;
+        private final String username;
+        private final String investorRecordId;
+        private final Map<String, Object> fields;
+        private final InvestmentRow row;
+
+        /**
+         * 写入飞书后得到的记录ID
+         */
+        private volatile String recordId;
+
+        PendingInvestment(String id, String username, String investorRecordId, Map<String, Object> fields) {
+            this.id = id;
+            this.username = username;
+            this.investorRecordId = investorRecordId;
+            this.fields = fields;
+            this.row = InvestmentRow.from(fields);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.HackathonProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 排行榜SSE推送
+ * 排行榜每生成一个新快照，推送线程把同一份预序列化的数据分发给所有订阅者，
+ * 订阅者数量不影响排行榜计算次数
+ * 每个订阅者有自己的发送队列（只保留最新一条待发送消息），由发送线程池分别发送，
+ * 一个慢客户端只阻塞它自己的发送；一次发送超过 send-timeout 仍未完成的订阅者被断开
+ */
+@Slf4j
+@Service
+public class LeaderboardBroadcaster {
+
+    /**
+     * 单个SSE连接的最长保持时间，超时后浏览器EventSource会自动重连
+     */
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    private static final String EVENT_NAME = "leaderboard";
+
+    private final HackathonService hackathonService;
+    private final long sendTimeoutMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 最新快照（推送线程只分发最新的一个，中间版本直接跳过）
+     */
+    private final AtomicReference<LeaderboardSnapshot> latest = new AtomicReference<>();
+    private final AtomicBoolean broadcastScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean loadScheduled = new AtomicBoolean(false);
+    private volatile long sentVersion;
+
+    /**
+     * 分发线程：只把快照放入各订阅者的发送队列，不做网络写入
+     */
+    private final ExecutorService broadcastExecutor = Executors.newSingleThreadExecutor(daemonThreads("leaderboard-broadcast"));
+
+    /**
+     * 首个快照的后台计算线程，与分发线程分开，计算不会推迟推送
+     */
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(daemonThreads("leaderboard-load"));
+
+    /**
+     * 发送线程池：按需创建线程，卡住的发送只占用自己的线程，不排在其他订阅者前面；
+     * 卡住的订阅者会被断开、不再分配发送任务，线程数不会持续增长
+     */
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(daemonThreads("leaderboard-send"));
+
+    public LeaderboardBroadcaster(HackathonService hackathonService, HackathonProperties hackathonProperties) {
+        this.hackathonService = hackathonService;
+        this.sendTimeoutMillis = hackathonProperties.getLeaderboard().getSendTimeout() * 1000L;
+    }
+
+    @PostConstruct
+    public void register() {
+        hackathonService.addLeaderboardListener(this::onSnapshot);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcastExecutor.shutdownNow();
+        loadExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * 新增订阅者，并立即发送当前快照
+     * 在请求线程中只读取已有快照；还没有快照时在后台计算，计算完成后推送给所有订阅者
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(EMITTER_TIMEOUT_MILLIS));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        LeaderboardSnapshot current = hackathonService.peekLeaderboardSnapshot();
+        if (current != null) {
+            if (current.getBody() != null) {
+                subscriber.offer(snapshotEvent(current.getVersion(),
+                        new String(current.getBody(), StandardCharsets.UTF_8)));
+            }
+        } else {
+            loadInBackground();
+        }
+        log.debug("新增排行榜订阅，当前订阅数: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 当前订阅者数量
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 定期发送心跳，保持连接并及时清理已断开或发送卡住的订阅者；
+     * 同时读取一次快照，使过期的排行榜在没有普通请求时也能在后台刷新
+     */
+    @Scheduled(fixedDelayString = "${hackathon.leaderboard.heartbeat-interval:15}000")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        hackathonService.getLeaderboardSnapshot();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerIfIdle(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void loadInBackground() {
+        if (!loadScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            loadExecutor.execute(() -> {
+                try {
+                    hackathonService.getLeaderboardSnapshot();
+                } catch (Exception e) {
+                    log.warn("排行榜计算失败: {}", e.getMessage());
+                } finally {
+                    loadScheduled.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            loadScheduled.set(false);
+            log.warn("提交排行榜计算任务失败: {}", e.getMessage());
+        }
+    }
+
+    private void onSnapshot(LeaderboardSnapshot snapshot) {
+        latest.set(snapshot);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (broadcastScheduled.compareAndSet(false, true)) {
+            try {
+                broadcastExecutor.execute(this::broadcastLatest);
+            } catch (RuntimeException e) {
+                broadcastScheduled.set(false);
+                log.warn("提交排行榜推送任务失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void broadcastLatest() {
+        broadcastScheduled.set(false);
+        LeaderboardSnapshot snapshot = latest.get();
+        if (snapshot == null || snapshot.getBody() == null || snapshot.getVersion() <= sentVersion) {
+            return;
+        }
+        sentVersion = snapshot.getVersion();
+
+        String data = new String(snapshot.getBody(), StandardCharsets.UTF_8);
+        int queued = 0;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(snapshotEvent(snapshot.getVersion(), data))) {
+                queued++;
+            }
+        }
+        log.debug("排行榜快照 v{} 已放入 {} 个订阅者的发送队列", snapshot.getVersion(), queued);
+    }
+
+    private static SseEmitter.SseEventBuilder snapshotEvent(long version, String data) {
+        return SseEmitter.event()
+                .id(String.valueOf(version))
+                .name(EVENT_NAME)
+                .data(data, MediaType.APPLICATION_JSON);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r);
+            t.setName(name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 单个订阅者的发送队列
+     * 队列只保留最新一条待发送消息（新快照覆盖还没发出的旧快照），同一时刻最多一个发送任务
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicReference<SseEmitter.SseEventBuilder> pending = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        /**
+         * 当前发送开始时间，0表示没有进行中的发送
+         */
+        private volatile long sendStartedAt;
+        private volatile boolean dropped;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * 放入待发送消息并安排发送
+         *
+         * @return 订阅者已被断开（发送卡住超时）时返回false
+         */
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            if (dropIfStalled()) {
+                return false;
+            }
+            pending.set(event);
+            schedule();
+            return true;
+        }
+
+        /**
+         * 心跳：已有待发送消息或正在发送时不再追加，避免覆盖未发出的快照
+         */
+        void offerIfIdle(SseEmitter.SseEventBuilder event) {
+            if (dropIfStalled() || sending.get()) {
+                return;
+            }
+            if (pending.compareAndSet(null, event)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RuntimeException e) {
+                sending.set(false);
+                log.warn("提交排行榜发送任务失败: {}", e.getMessage());
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event = pending.getAndSet(null);
+                if (event == null) {
+                    sending.set(false);
+                    // 释放标记与新消息入队之间的竞争：新消息可能刚好没能安排发送
+                    if (pending.get() == null || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                if (dropped) {
+                    sending.set(false);
+                    return;
+                }
+                sendStartedAt = System.currentTimeMillis();
+                try {
+                    emitter.send(event);
+                } catch (Exception e) {
+                    subscribers.remove(this);
+                    sending.set(false);
+                    return;
+                } finally {
+                    sendStartedAt = 0;
+                }
+                if (dropped) {
+                    // 卡住期间已被断开，阻塞的写入返回后在本线程结束连接
+                    sending.set(false);
+                    emitter.complete();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 一次发送超过 send-timeout 仍未完成时断开该订阅者
+         * 阻塞中的写入无法从外部打断（在其他线程结束连接会等待同一把锁），
+         * 这里只移出订阅者，不再安排发送；写入返回后由发送线程结束连接
+         */
+        private boolean dropIfStalled() {
+            if (dropped) {
+                return true;
+            }
+            long startedAt = sendStartedAt;
+            if (startedAt == 0 || System.currentTimeMillis() - startedAt < sendTimeoutMillis) {
+                return false;
+            }
+            dropped = true;
+            subscribers.remove(this);
+            log.info("排行榜订阅者发送超过 {}ms 未完成，断开该订阅者", sendTimeoutMillis);
+            return true;
+        }
+    }
+}
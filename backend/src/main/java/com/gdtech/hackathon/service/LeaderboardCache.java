@@ -0,0 +1,394 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.dto.ApiResponse;
+import com.gdtech.hackathon.dto.LeaderboardDelta;
+import com.gdtech.hackathon.model.Project;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 排行榜快照缓存（stale-while-revalidate）
+ * 快照过期或被标记失效后继续返回旧快照，同时只在后台执行一次重新计算
+ * 没有快照时并发请求合并为一次计算（single-flight），所有等待者共享同一结果
+ * 每个快照在计算完成时预先序列化为JSON并gzip压缩，附带强ETag
+ * 新快照生成后通知监听器（用于SSE推送）；重新计算的结果与当前快照ETag相同时沿用原版本号，不通知监听器
+ * 保留最近若干个版本，用于按客户端持有的版本生成增量更新
+ */
+@Slf4j
+class LeaderboardCache {
+
+    private final Supplier<List<Project>> loader;
+    private final ObjectMapper objectMapper;
+    private final long refreshAfterMillis;
+
+    /**
+     * 保留的历史版本数，客户端版本早于此范围时返回全量
+     */
+    private static final int HISTORY_SIZE = 32;
+
+    /**
+     * 全量增量响应在快照增量缓存中的键
+     */
+    private static final long FULL_DELTA_KEY = -1L;
+
+    private volatile LeaderboardSnapshot snapshot;
+
+    /**
+     * 快照版本号生成器，以启动时间（毫秒）为起点
+     * 重启前签发的版本号都小于本次的起点，不会和本次的历史版本撞号，客户端带旧版本号来时返回全量
+     */
+    private final AtomicLong versionSeq = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 失效序号，每次 invalidate 自增；快照记录加载时的序号，不一致即视为过期
+     */
+    private final AtomicLong invalidationSeq = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    /**
+     * 正在进行中的计算，同一时刻最多一个
+     */
+    private final AtomicReference<CompletableFuture<LeaderboardSnapshot>> inFlight = new AtomicReference<>();
+
+    /**
+     * 新快照监听器
+     */
+    private final List<Consumer<LeaderboardSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 最近的快照（按版本从旧到新）
+     */
+    private final Deque<LeaderboardSnapshot> history = new ArrayDeque<>(HISTORY_SIZE);
+
+    // 统计：实际计算次数、被合并的请求数、后台刷新次数
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder backgroundRefreshCount = new LongAdder();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setName("leaderboard-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    LeaderboardCache(Supplier<List<Project>> loader, ObjectMapper objectMapper, long refreshAfterMillis) {
+        this.loader = loader;
+        this.objectMapper = objectMapper;
+        this.refreshAfterMillis = refreshAfterMillis;
+    }
+
+    /**
+     * 获取排行榜
+     */
+    List<Project> get() {
+        LeaderboardSnapshot current = getSnapshot();
+        return current != null ? current.getProjects() : Collections.emptyList();
+    }
+
+    /**
+     * 获取排行榜快照
+     * 有快照时立即返回（过期则触发后台刷新），没有快照时同步计算（并发请求合并）
+     *
+     * @return 快照，项目列表为空时返回null
+     */
+    LeaderboardSnapshot getSnapshot() {
+        LeaderboardSnapshot current = snapshot;
+        if (current == null) {
+            return loadShared();
+        }
+        if (isStale(current)) {
+            triggerRefresh();
+        }
+        return current;
+    }
+
+    /**
+     * 获取当前快照但不同步计算：没有快照时返回null，过期时触发后台刷新
+     */
+    LeaderboardSnapshot peekSnapshot() {
+        LeaderboardSnapshot current = snapshot;
+        if (current != null && isStale(current)) {
+            triggerRefresh();
+        }
+        return current;
+    }
+
+    /**
+     * 标记快照失效并立即触发后台刷新，刷新完成前读请求仍返回旧快照
+     */
+    void invalidate() {
+        invalidationSeq.incrementAndGet();
+        if (snapshot != null) {
+            triggerRefresh();
+        }
+    }
+
+    /**
+     * 注册新快照监听器，在计算快照的线程中回调，监听器应尽快返回
+     */
+    void addListener(Consumer<LeaderboardSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 丢弃快照，下一次读取同步重新计算
+     */
+    void clear() {
+        invalidationSeq.incrementAndGet();
+        snapshot = null;
+        synchronized (history) {
+            history.clear();
+        }
+    }
+
+    /**
+     * 获取相对于指定版本的增量响应体（ApiResponse包装的 {@link LeaderboardDelta}）
+     * 同一基准版本的增量在每个快照上只计算、序列化一次；基准版本不在保留范围内时返回全量
+     *
+     * @param sinceVersion 客户端持有的版本号
+     * @return 响应体，没有快照时返回null
+     */
+    byte[] getDeltaBody(long sinceVersion) {
+        LeaderboardSnapshot current = getSnapshot();
+        if (current == null) {
+            return null;
+        }
+        LeaderboardSnapshot base = current.getVersion() == sinceVersion ? current : findVersion(sinceVersion);
+        long key = base != null ? sinceVersion : FULL_DELTA_KEY;
+        return current.deltaBodies.computeIfAbsent(key, k -> renderDelta(base, current));
+    }
+
+    private LeaderboardSnapshot findVersion(long version) {
+        synchronized (history) {
+            for (LeaderboardSnapshot candidate : history) {
+                if (candidate.getVersion() == version) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 比较两个快照，项目的任一字段（排名、UV、投资额、晋级状态、投资记录等）不同即视为变化
+     */
+    private byte[] renderDelta(LeaderboardSnapshot base, LeaderboardSnapshot current) {
+        LeaderboardDelta delta = new LeaderboardDelta();
+        delta.setVersion(current.getVersion());
+
+        List<Long> order = new ArrayList<>(current.getProjects().size());
+        for (Project project : current.getProjects()) {
+            order.add(project.getId());
+        }
+        delta.setOrder(order);
+
+        if (base == null) {
+            delta.setFull(true);
+            delta.setProjects(current.getProjects());
+            delta.setRemoved(Collections.emptyList());
+        } else {
+            Map<Long, Project> baseProjects = new HashMap<>();
+            for (Project project : base.getProjects()) {
+                baseProjects.put(project.getId(), project);
+            }
+
+            List<Project> changed = new ArrayList<>();
+            Set<Long> currentIds = new HashSet<>();
+            for (Project project : current.getProjects()) {
+                currentIds.add(project.getId());
+                if (!Objects.equals(baseProjects.get(project.getId()), project)) {
+                    changed.add(project);
+                }
+            }
+            List<Long> removed = new ArrayList<>();
+            for (Long id : baseProjects.keySet()) {
+                if (!currentIds.contains(id)) {
+                    removed.add(id);
+                }
+            }
+
+            delta.setBaseVersion(base.getVersion());
+            delta.setFull(false);
+            delta.setProjects(changed);
+            delta.setRemoved(removed);
+        }
+
+        try {
+            return objectMapper.writeValueAsBytes(ApiResponse.success(delta));
+        } catch (IOException e) {
+            throw new IllegalStateException("排行榜增量序列化失败", e);
+        }
+    }
+
+    private boolean isStale(LeaderboardSnapshot current) {
+        return current.seq != invalidationSeq.get()
+                || System.currentTimeMillis() - current.loadedAt >= refreshAfterMillis;
+    }
+
+    /**
+     * 统计信息
+     */
+    Map<String, Object> stats() {
+        LeaderboardSnapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", current != null ? current.getVersion() : null);
+        stats.put("loadCount", loadCount.sum());
+        stats.put("coalescedCount", coalescedCount.sum());
+        stats.put("backgroundRefreshCount", backgroundRefreshCount.sum());
+        stats.put("snapshotAgeMillis", current != null ? System.currentTimeMillis() - current.loadedAt : null);
+        stats.put("stale", current != null && isStale(current));
+        return stats;
+    }
+
+    /**
+     * 执行一次计算；如果已有计算在进行中，直接等待并复用其结果
+     */
+    private LeaderboardSnapshot loadShared() {
+        CompletableFuture<LeaderboardSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<LeaderboardSnapshot> existing = inFlight.compareAndExchange(null, mine);
+        if (existing != null) {
+            coalescedCount.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            long seq = invalidationSeq.get();
+            loadCount.increment();
+            LeaderboardSnapshot loaded = store(loader.get(), seq);
+            mine.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            // 包括Error在内都要通知等待者，否则合并的请求会一直阻塞在 join 上
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.compareAndSet(mine, null);
+        }
+    }
+
+    private void triggerRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(this::refreshInBackground);
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            log.warn("提交排行榜后台刷新失败: {}", e.getMessage());
+        }
+    }
+
+    private void refreshInBackground() {
+        long seq = invalidationSeq.get();
+        boolean success = false;
+        try {
+            long startTime = System.currentTimeMillis();
+            backgroundRefreshCount.increment();
+            loadShared();
+            success = true;
+            log.debug("排行榜后台刷新完成，耗时: {}ms", System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("排行榜后台刷新失败，继续使用旧快照", e);
+        } finally {
+            refreshing.set(false);
+        }
+
+        // 刷新期间又有新的失效请求，再刷新一次（失败时等下一次读请求再触发，避免空转）
+        if (success && seq != invalidationSeq.get()) {
+            triggerRefresh();
+        }
+    }
+
+    private LeaderboardSnapshot store(List<Project> projects, long seq) {
+        if (projects == null || projects.isEmpty()) {
+            return null;
+        }
+        List<Project> readOnly = Collections.unmodifiableList(projects);
+
+        byte[] body = null;
+        byte[] gzipBody = null;
+        String etag = null;
+        try {
+            body = objectMapper.writeValueAsBytes(ApiResponse.success(readOnly));
+            gzipBody = gzip(body);
+            etag = computeEtag(body);
+        } catch (Exception e) {
+            log.warn("排行榜快照序列化失败，将按请求实时序列化: {}", e.getMessage());
+        }
+
+        LeaderboardSnapshot previous = snapshot;
+        if (previous != null && etag != null && etag.equals(previous.getEtag())) {
+            // 内容没有变化：不生成新版本，也不推送
+            LeaderboardSnapshot renewed = previous.renew(System.currentTimeMillis(), seq);
+            snapshot = renewed;
+            return renewed;
+        }
+
+        LeaderboardSnapshot created = new LeaderboardSnapshot(versionSeq.incrementAndGet(), readOnly,
+                body, gzipBody, etag, System.currentTimeMillis(), seq);
+        snapshot = created;
+        synchronized (history) {
+            if (history.size() >= HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(created);
+        }
+        for (Consumer<LeaderboardSnapshot> listener : listeners) {
+            try {
+                listener.accept(created);
+            } catch (Exception e) {
+                log.warn("排行榜快照监听器执行失败: {}", e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static String computeEtag(byte[] body) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+}
@@ -0,0 +1,87 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.model.Project;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 排行榜快照
+ * 每个版本只计算、序列化、压缩一次，之后所有请求直接复用
+ */
+public final class LeaderboardSnapshot {
+
+    private final long version;
+    private final List<Project> projects;
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String etag;
+
+    final long loadedAt;
+    final long seq;
+
+    /**
+     * 基准版本号 -> 预序列化的增量响应体
+     */
+    final Map<Long, byte[]> deltaBodies = new ConcurrentHashMap<>();
+
+    LeaderboardSnapshot(long version, List<Project> projects, byte[] body, byte[] gzipBody,
+                        String etag, long loadedAt, long seq) {
+        this.version = version;
+        this.projects = projects;
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = etag;
+        this.loadedAt = loadedAt;
+        this.seq = seq;
+    }
+
+    /**
+     * 内容未变化时重新计算得到的快照：沿用版本号、响应体和已生成的增量，只更新加载时间和失效序号
+     */
+    LeaderboardSnapshot renew(long loadedAt, long seq) {
+        LeaderboardSnapshot renewed = new LeaderboardSnapshot(version, projects, body, gzipBody, etag, loadedAt, seq);
+        renewed.deltaBodies.putAll(deltaBodies);
+        return renewed;
+    }
+
+    /**
+     * 快照版本号（以服务启动时间为起点单调递增，跨重启不重复）
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    /**
+     * 完整响应体（ApiResponse包装后的UTF-8 JSON），序列化失败时为null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * gzip压缩后的响应体，压缩失败时为null
+     */
+    public byte[] getGzipBody() {
+        return gzipBody;
+    }
+
+    /**
+     * 强ETag（按响应体内容计算，内容不变则ETag不变）
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * gzip响应体的强ETag（不同内容编码需要不同的强校验值）
+     */
+    public String getGzipEtag() {
+        return etag != null ? etag.substring(0, etag.length() - 1) + "-gzip\"" : null;
+    }
+}
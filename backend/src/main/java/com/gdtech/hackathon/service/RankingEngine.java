@@ -0,0 +1,275 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.model.Project;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 增量排名引擎
+ * 按阶段把项目保存在有序集合中（UV序、晋级区投资序、非晋级区UV序），
+ * 每次重新计算排行榜时只把UV或投资额发生变化的项目移出并重新插入（每个 O(log n)），
+ * 不再对整个列表重新排序；按序输出项目并写入排名仍需遍历全部项目，单次计算整体为 O(n + k log n)（k为变化的项目数）
+ * 阶段、晋级名单变化时整体重建
+ * 由 {@link HackathonService} 持有，排行榜计算是单飞的，这里按同步方法保护即可
+ */
+@Slf4j
+class RankingEngine {
+
+    /**
+     * 排名模式
+     */
+    enum Mode {
+        /**
+         * 全部项目按UV排名，前N名晋级（海选期，或锁定期/投资期未配置晋级名单时）
+         */
+        UV_TOP_N,
+
+        /**
+         * 晋级名单固定，晋级区和非晋级区分别按UV排名（锁定期）
+         */
+        LOCKED_BY_UV,
+
+        /**
+         * 晋级名单固定，晋级区按投资额、非晋级区按UV排名（投资期、结束期）
+         */
+        LOCKED_BY_INVESTMENT
+    }
+
+    /**
+     * 排序键中队伍编号占用的低位数，队伍编号超出范围时按最大值处理
+     */
+    private static final int TEAM_NUMBER_BITS = 20;
+    private static final int MAX_TEAM_NUMBER = (1 << TEAM_NUMBER_BITS) - 1;
+    private static final long MAX_UV = (1L << (63 - TEAM_NUMBER_BITS)) - 1;
+
+    /**
+     * 无法解析的队伍编号排在最后
+     */
+    static final int DEFAULT_TEAM_NUMBER = 999;
+
+    /**
+     * UV降序，UV相同按队伍编号升序
+     */
+    private static final Comparator<Entry> UV_ORDER = (a, b) -> {
+        int cmp = Long.compare(a.uvKey, b.uvKey);
+        return cmp != 0 ? cmp : Long.compare(a.id, b.id);
+    };
+
+    /**
+     * 投资额降序，投资额相同按UV降序，UV也相同按队伍编号升序
+     */
+    private static final Comparator<Entry> INVESTMENT_ORDER = (a, b) -> {
+        int cmp = Integer.compare(b.investment, a.investment);
+        if (cmp != 0) return cmp;
+        cmp = Long.compare(a.uvKey, b.uvKey);
+        return cmp != 0 ? cmp : Long.compare(a.id, b.id);
+    };
+
+    private Mode mode;
+    private Set<Long> qualifiedIds = Collections.emptySet();
+    private int qualifiedCount;
+
+    private TreeSet<Entry> qualified = new TreeSet<>(UV_ORDER);
+    private TreeSet<Entry> nonQualified = new TreeSet<>(UV_ORDER);
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // 统计：整体重建次数、重新定位的项目数
+    private long rebuildCount;
+    private long repositionCount;
+
+    /**
+     * 计算排名：调整 projects 的顺序（晋级区在前），并设置每个项目的排名和晋级状态
+     *
+     * @param projects       本次计算的项目（会被原地重排）
+     * @param mode           排名模式
+     * @param qualifiedIds   固定的晋级名单（UV_TOP_N 模式忽略）
+     * @param qualifiedCount 晋级名额（仅 UV_TOP_N 模式使用）
+     */
+    synchronized void rank(List<Project> projects, Mode mode, Set<Long> qualifiedIds, int qualifiedCount) {
+        Set<Long> effectiveIds = mode == Mode.UV_TOP_N ? Collections.emptySet() : qualifiedIds;
+        if (mode != this.mode || qualifiedCount != this.qualifiedCount || !effectiveIds.equals(this.qualifiedIds)) {
+            rebuild(projects, mode, effectiveIds, qualifiedCount);
+        } else {
+            update(projects);
+        }
+        emit(projects);
+    }
+
+    /**
+     * 统计信息
+     */
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("rebuildCount", rebuildCount);
+        stats.put("repositionCount", repositionCount);
+        return stats;
+    }
+
+    private void rebuild(List<Project> projects, Mode mode, Set<Long> qualifiedIds, int qualifiedCount) {
+        this.mode = mode;
+        this.qualifiedIds = new HashSet<>(qualifiedIds);
+        this.qualifiedCount = qualifiedCount;
+
+        // UV_TOP_N 只使用一个集合，晋级状态由名次决定
+        qualified = new TreeSet<>(mode == Mode.LOCKED_BY_INVESTMENT ? INVESTMENT_ORDER : UV_ORDER);
+        nonQualified = new TreeSet<>(UV_ORDER);
+
+        entries.clear();
+        for (Project project : projects) {
+            insert(new Entry(project));
+        }
+        rebuildCount++;
+        log.debug("排名引擎重建: mode={}, 项目数={}", mode, projects.size());
+    }
+
+    /**
+     * 只重新定位排序键发生变化的项目，并移除已不存在的项目
+     */
+    private void update(List<Project> projects) {
+        Set<Long> seen = new HashSet<>(projects.size() * 2);
+        int repositioned = 0;
+        for (Project project : projects) {
+            seen.add(project.getId());
+            Entry existing = entries.get(project.getId());
+            if (existing != null && existing.sameKey(project)) {
+                existing.project = project;
+                continue;
+            }
+            if (existing != null) {
+                setFor(existing).remove(existing);
+            }
+            insert(new Entry(project));
+            repositioned++;
+        }
+
+        if (entries.size() > seen.size()) {
+            Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (!seen.contains(entry.id)) {
+                    setFor(entry).remove(entry);
+                    it.remove();
+                }
+            }
+        }
+        repositionCount += repositioned;
+        if (repositioned > 0) {
+            log.debug("排名引擎重新定位 {} 个项目", repositioned);
+        }
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.id, entry);
+        setFor(entry).add(entry);
+    }
+
+    private TreeSet<Entry> setFor(Entry entry) {
+        if (mode == Mode.UV_TOP_N) {
+            return qualified;
+        }
+        return qualifiedIds.contains(entry.id) ? qualified : nonQualified;
+    }
+
+    /**
+     * 按有序集合输出项目顺序并写入排名
+     */
+    private void emit(List<Project> projects) {
+        projects.clear();
+        if (mode == Mode.UV_TOP_N) {
+            int rank = 0;
+            for (Entry entry : qualified) {
+                rank++;
+                entry.project.setRank(rank);
+                entry.project.setQualified(rank <= qualifiedCount);
+                projects.add(entry.project);
+            }
+            return;
+        }
+
+        int rank = 0;
+        for (Entry entry : qualified) {
+            entry.project.setRank(++rank);
+            entry.project.setQualified(true);
+            projects.add(entry.project);
+        }
+        rank = 0;
+        for (Entry entry : nonQualified) {
+            entry.project.setRank(++rank);
+            entry.project.setQualified(false);
+            projects.add(entry.project);
+        }
+    }
+
+    /**
+     * UV排序键：高位为取反后的UV，低位为队伍编号，升序比较即得到"UV降序、队伍编号升序"
+     * 各阶段统一使用这一键值，排序时只做一次long比较
+     */
+    static long uvSortKey(long uv, int teamNumber) {
+        long clampedUv = Math.max(0L, Math.min(uv, MAX_UV));
+        return ((MAX_UV - clampedUv) << TEAM_NUMBER_BITS) | Math.min(teamNumber, MAX_TEAM_NUMBER);
+    }
+
+    static long uvSortKey(Project project) {
+        return uvSortKey(project.getUv() != null ? project.getUv() : 0L, parseTeamNumber(project.getTeamNumber()));
+    }
+
+    /**
+     * 解析队伍编号为整数，用于排序
+     * 只接受纯数字（允许前后空白），其他情况返回999（排在最后），不依赖异常
+     */
+    static int parseTeamNumber(String teamNumber) {
+        if (teamNumber == null) {
+            return DEFAULT_TEAM_NUMBER;
+        }
+        int start = 0;
+        int end = teamNumber.length();
+        while (start < end && Character.isWhitespace(teamNumber.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(teamNumber.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end || end - start > 9) {
+            return DEFAULT_TEAM_NUMBER;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = teamNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return DEFAULT_TEAM_NUMBER;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 排序条目：排序键在创建时计算好，键变化时整体替换条目
+     */
+    private static final class Entry {
+        private final long id;
+        private final long uv;
+        private final int investment;
+        private final String teamNumberRaw;
+        private final long uvKey;
+        private Project project;
+
+        Entry(Project project) {
+            this.id = project.getId();
+            this.uv = project.getUv() != null ? project.getUv() : 0L;
+            this.investment = project.getInvestment() != null ? project.getInvestment() : 0;
+            this.teamNumberRaw = project.getTeamNumber();
+            this.uvKey = uvSortKey(uv, parseTeamNumber(teamNumberRaw));
+            this.project = project;
+        }
+
+        boolean sameKey(Project project) {
+            long otherUv = project.getUv() != null ? project.getUv() : 0L;
+            int otherInvestment = project.getInvestment() != null ? project.getInvestment() : 0;
+            return uv == otherUv && investment == otherInvestment
+                    && Objects.equals(teamNumberRaw, project.getTeamNumber());
+        }
+    }
+}
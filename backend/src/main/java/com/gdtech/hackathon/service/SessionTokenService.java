@@ -0,0 +1,105 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.HackathonProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 投资人会话令牌
+ * 登录成功后签发 HMAC-SHA256 签名的令牌（账号 + 过期时间），之后的请求凭令牌识别投资人，
+ * 校验只做一次签名计算，不需要密码也不读取任何表；投资人数据从本地表副本的索引中取
+ */
+@Slf4j
+@Service
+public class SessionTokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+
+    public SessionTokenService(HackathonProperties hackathonProperties) {
+        HackathonProperties.Session session = hackathonProperties.getSession();
+        byte[] secret;
+        if (session.getSecret() == null || session.getSecret().isEmpty()) {
+            // 未配置密钥时使用随机密钥，服务重启后已签发的令牌失效，需要重新登录
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            log.warn("未配置会话令牌密钥(环境变量 HACKATHON_SESSION_SECRET)，使用随机密钥，重启后投资人需要重新登录；生产环境必须配置");
+        } else {
+            secret = session.getSecret().getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.ttlMillis = session.getTtlHours() * 3600_000L;
+    }
+
+    /**
+     * 为投资人签发会话令牌
+     *
+     * @param username 投资人账号
+     * @return 令牌，格式：base64url(账号:过期时间戳).base64url(签名)
+     */
+    public String issue(String username) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((username + ":" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return payload + "." + sign(payload);
+    }
+
+    /**
+     * 校验会话令牌
+     *
+     * @param token 令牌（可带 "Bearer " 前缀）
+     * @return 令牌对应的投资人账号，令牌无效或已过期返回null
+     */
+    public String resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        token = token.trim();
+        if (token.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            token = token.substring(7).trim();
+        }
+
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+            int idx = decoded.lastIndexOf(':');
+            if (idx <= 0 || Long.parseLong(decoded.substring(idx + 1)) < System.currentTimeMillis()) {
+                return null;
+            }
+            return decoded.substring(0, idx);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("会话令牌签名失败", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gdtech.hackathon.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可追加只读列表：追加不影响已有版本，从旧版本追加时不会覆盖新版本的元素
+ */
+class AppendOnlyListTest {
+
+    @Test
+    void appendLeavesEarlierVersionsUnchanged() {
+        AppendOnlyList<String> v1 = AppendOnlyList.copyOf(List.of("a", "b"));
+        AppendOnlyList<String> v2 = v1.withAppended(List.of("c"));
+        AppendOnlyList<String> v3 = v2.withAppended(List.of("d", "e"));
+
+        assertEquals(List.of("a", "b"), v1);
+        assertEquals(List.of("a", "b", "c"), v2);
+        assertEquals(List.of("a", "b", "c", "d", "e"), v3);
+    }
+
+    @Test
+    void appendingToStaleVersionDoesNotOverwriteNewerOne() {
+        AppendOnlyList<String> base = AppendOnlyList.<String>empty().withAppended(List.of("a"));
+        AppendOnlyList<String> tip = base.withAppended(List.of("b"));
+        AppendOnlyList<String> branch = base.withAppended(List.of("x"));
+
+        assertEquals(List.of("a", "b"), tip);
+        assertEquals(List.of("a", "x"), branch);
+        assertEquals(List.of("a", "b", "c"), tip.withAppended(List.of("c")));
+    }
+
+    @Test
+    void manyAppendsKeepOrder() {
+        AppendOnlyList<Integer> list = AppendOnlyList.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list = list.withAppended(List.of(i));
+            expected.add(i);
+        }
+
+        assertEquals(expected, list);
+        assertThrows(IndexOutOfBoundsException.class, () -> AppendOnlyList.empty().get(0));
+    }
+
+    @Test
+    void isReadOnly() {
+        AppendOnlyList<String> list = AppendOnlyList.copyOf(List.of("a"));
+
+        assertThrows(UnsupportedOperationException.class, () -> list.add("b"));
+        assertThrows(UnsupportedOperationException.class, () -> list.set(0, "b"));
+        assertSame(list, list.withAppended(List.of()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.config.FeishuConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量更新分组写入：每组成功后回调，某组失败时之前的组已回调、之后的组不再请求
+ */
+class FeishuServiceBatchUpdateTest {
+
+    @Test
+    void reportsChunksWrittenBeforeFailure() {
+        AtomicInteger batchRequests = new AtomicInteger();
+        FeishuService feishuService = newService(path -> {
+            if (path.endsWith("/tenant_access_token/internal")) {
+                return "{\"code\":0,\"tenant_access_token\":\"t\",\"expire\":7200}";
+            }
+            // 第二组被飞书拒绝
+            return batchRequests.incrementAndGet() == 2
+                    ? "{\"code\":1254045,\"msg\":\"FieldNameNotFound\"}"
+                    : "{\"code\":0,\"msg\":\"success\",\"data\":{}}";
+        });
+
+        Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            updates.put("rec" + i, Map.of("累计UV", i));
+        }
+        List<Map<String, Map<String, Object>>> written = new ArrayList<>();
+
+        assertThrows(FeishuApiException.class,
+                () -> feishuService.batchUpdateRecords("tblProjects", updates, written::add));
+
+        assertEquals(2, batchRequests.get(), "失败后不再请求后续分组");
+        assertEquals(1, written.size());
+        assertEquals(500, written.get(0).size());
+        assertTrue(written.get(0).containsKey("rec0"));
+        assertTrue(written.get(0).containsKey("rec499"));
+        assertFalse(written.get(0).containsKey("rec500"));
+    }
+
+    @Test
+    void reportsEveryChunkOnSuccess() {
+        FeishuService feishuService = newService(path -> path.endsWith("/tenant_access_token/internal")
+                ? "{\"code\":0,\"tenant_access_token\":\"t\",\"expire\":7200}"
+                : "{\"code\":0,\"msg\":\"success\",\"data\":{}}");
+
+        Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+        for (int i = 0; i < 501; i++) {
+            updates.put("rec" + i, Map.of("累计UV", i));
+        }
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        feishuService.batchUpdateRecords("tblProjects", updates, chunk -> chunkSizes.add(chunk.size()));
+
+        assertEquals(List.of(500, 1), chunkSizes);
+    }
+
+    private static FeishuService newService(Function<String, String> responder) {
+        FeishuConfig feishuConfig = mock(FeishuConfig.class);
+        FeishuConfig.BaseConfig base = new FeishuConfig.BaseConfig();
+        base.setAppToken("app");
+        when(feishuConfig.getBase()).thenReturn(base);
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> Mono.just(
+                ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(responder.apply(request.url().getPath()))
+                        .build()));
+        return new FeishuService(feishuConfig, new ObjectMapper(), builder);
+    }
+}
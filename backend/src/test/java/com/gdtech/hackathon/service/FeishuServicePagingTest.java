@@ -0,0 +1,91 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.config.FeishuConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 记录列表分页解析：按飞书实际的字段顺序（page_token 在 items 之后），下一页请求在解码本页记录之前发出
+ */
+class FeishuServicePagingTest {
+
+    private final FeishuService feishuService = new FeishuService(mock(FeishuConfig.class), new ObjectMapper(),
+            WebClient.builder());
+
+    @Test
+    void nextPageIsRequestedBeforeItemsAreDecoded() throws Exception {
+        List<Integer> decodedWhenRequested = new ArrayList<>();
+        List<String> requestedTokens = new ArrayList<>();
+        FeishuService.RecordPage[] page = new FeishuService.RecordPage[1];
+        page[0] = new FeishuService.RecordPage(pageToken -> {
+            decodedWhenRequested.add(page[0].getRecords().size());
+            requestedTokens.add(pageToken);
+            return new CompletableFuture<>();
+        });
+
+        feishuService.parseRecordPage(body("{\"code\":0,\"data\":{\"has_more\":true,\"items\":["
+                + item("rec1", 1) + "," + item("rec2", 2) + "," + item("rec3", 3)
+                + "],\"page_token\":\"tok2\",\"total\":6},\"msg\":\"success\"}"), page[0]);
+
+        assertEquals(List.of("tok2"), requestedTokens);
+        assertEquals(List.of(0), decodedWhenRequested, "下一页请求应在解码任何记录之前发出");
+        assertNotNull(page[0].getNext());
+        assertEquals(3, page[0].getRecords().size());
+        assertEquals("rec2", page[0].getRecords().get(1).get("record_id"));
+        assertEquals(2L, page[0].getRecords().get(1).get("UV"));
+    }
+
+    @Test
+    void lastPageDoesNotRequestMore() throws Exception {
+        FeishuService.RecordPage page = new FeishuService.RecordPage(pageToken -> {
+            throw new AssertionError("最后一页不应请求下一页");
+        });
+
+        feishuService.parseRecordPage(body("{\"code\":0,\"data\":{\"has_more\":false,\"items\":["
+                + item("rec1", 1) + "],\"total\":1},\"msg\":\"success\"}"), page);
+
+        assertNull(page.getNext());
+        assertEquals(1, page.getRecords().size());
+    }
+
+    @Test
+    void failedPageNeitherRequestsNorDecodes() throws Exception {
+        FeishuService.RecordPage page = new FeishuService.RecordPage(pageToken -> {
+            throw new AssertionError("失败的页不应请求下一页");
+        });
+
+        feishuService.parseRecordPage(body("{\"code\":1254045,\"data\":{\"has_more\":true,\"items\":["
+                + item("rec1", 1) + "],\"page_token\":\"tok2\"},\"msg\":\"FieldNameNotFound\"}"), page);
+
+        assertNull(page.getNext());
+        assertTrue(page.getRecords().isEmpty());
+    }
+
+    @Test
+    void maxPagesReachedStopsPrefetch() throws Exception {
+        FeishuService.RecordPage page = new FeishuService.RecordPage(null);
+
+        feishuService.parseRecordPage(body("{\"code\":0,\"data\":{\"has_more\":true,\"items\":["
+                + item("rec1", 1) + "],\"page_token\":\"tok2\"},\"msg\":\"success\"}"), page);
+
+        assertNull(page.getNext());
+        assertEquals(1, page.getRecords().size());
+    }
+
+    private static String item(String recordId, int uv) {
+        return "{\"fields\":{\"项目名称\":\"项目" + uv + "\",\"UV\":" + uv + "},\"record_id\":\"" + recordId + "\"}";
+    }
+
+    private static byte[] body(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
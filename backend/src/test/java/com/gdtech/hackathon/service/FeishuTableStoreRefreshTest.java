@@ -0,0 +1,140 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.FeishuConfig;
+import com.gdtech.hackathon.config.HackathonProperties;
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 表刷新（全量、增量）期间发生本地写入：刷新结果照常落地，落地后重放拉取开始之后的本地写入
+ */
+class FeishuTableStoreRefreshTest {
+
+    private static final String TABLE = "tblInvestments";
+    private static final String MODIFIED_FIELD = "修改时间";
+
+    private FeishuService feishuService;
+    private FeishuTableStore store;
+    private final CompletableFuture<List<Map<String, Object>>> pendingFetch = new CompletableFuture<>();
+
+    @BeforeEach
+    void setUp() {
+        feishuService = mock(FeishuService.class);
+        FeishuConfig feishuConfig = mock(FeishuConfig.class);
+        when(feishuConfig.getInvestmentsTableId()).thenReturn(TABLE);
+        HackathonProperties properties = new HackathonProperties();
+        properties.getStore().setModifiedTimeField(MODIFIED_FIELD);
+        store = new FeishuTableStore(feishuService, feishuConfig, properties);
+    }
+
+    @Test
+    void incrementalRefreshMergesIntoLatestSnapshot() throws Exception {
+        Map<String, Object> initial = record("rec1", "alice", 1, 10);
+        initial.put(MODIFIED_FIELD, 1000L);
+        when(feishuService.listRecordsAsync(eq(TABLE), any())).thenReturn(Mono.just(List.of(initial)));
+        CompletableFuture<List<Map<String, Object>>> pendingSearch = new CompletableFuture<>();
+        when(feishuService.searchRecordsModifiedSinceAsync(eq(TABLE), eq(MODIFIED_FIELD), anyLong(), any()))
+                .thenReturn(Mono.fromFuture(pendingSearch));
+        store.getInvestmentRows();
+
+        Thread refresher = new Thread(() -> store.refresh(TABLE));
+        refresher.start();
+        verify(feishuService, timeout(5000)).searchRecordsModifiedSinceAsync(eq(TABLE), eq(MODIFIED_FIELD), anyLong(), any());
+        store.appendRecords(TABLE, Map.of("rec3", fields("alice", 2, 30)));
+
+        Map<String, Object> changed = record("rec1", "alice", 1, 15);
+        changed.put(MODIFIED_FIELD, 2000L);
+        pendingSearch.complete(List.of(changed));
+        refresher.join(5000);
+
+        assertEquals(Map.of("rec1", 15, "rec3", 30), amounts());
+        assertEquals(15, store.getInvestmentIndex().projectTotal(1L));
+    }
+
+    @Test
+    void fullRefreshLandsAndKeepsAppendsMadeDuringFetch() throws Exception {
+        Thread refresher = startRefresh();
+        store.appendRecords(TABLE, Map.of("rec3", fields("alice", 2, 30)));
+
+        // 飞书中直接修改了rec1、新增了rec2，拉取结果中还没有本地刚写入的rec3
+        pendingFetch.complete(List.of(record("rec1", "alice", 1, 15), record("rec2", "bob", 1, 20)));
+        refresher.join(5000);
+
+        assertEquals(Map.of("rec1", 15, "rec2", 20, "rec3", 30), amounts());
+        assertEquals(35, store.getInvestmentIndex().projectTotal(1L));
+        assertEquals(30, store.getInvestmentIndex().projectTotal(2L));
+    }
+
+    @Test
+    void appendAlreadyInFetchedResultIsNotDuplicated() throws Exception {
+        Thread refresher = startRefresh();
+        store.appendRecords(TABLE, Map.of("rec3", fields("alice", 2, 30)));
+
+        pendingFetch.complete(List.of(record("rec1", "alice", 1, 10), record("rec3", "alice", 2, 30)));
+        refresher.join(5000);
+
+        assertEquals(2, store.getInvestmentRows().size());
+        assertEquals(2, store.getInvestmentIndex().byInvestor("alice").size());
+    }
+
+    @Test
+    void mergeMadeDuringFetchOverridesStaleFetchedValue() throws Exception {
+        Thread refresher = startRefresh();
+        Map<String, Map<String, Object>> updates = new HashMap<>();
+        updates.put("rec1", Map.of(InvestmentRow.F_AMOUNT, 50));
+        store.mergeRecords(TABLE, updates);
+
+        pendingFetch.complete(List.of(record("rec1", "alice", 1, 10)));
+        refresher.join(5000);
+
+        assertEquals(Map.of("rec1", 50), amounts());
+        assertEquals(50, store.getInvestmentIndex().projectTotal(1L));
+    }
+
+    /**
+     * 首次加载后在后台线程发起全量刷新，等到飞书请求已经发出（拉取进行中）再返回
+     * 首次加载的记录没有修改时间，水位为0，刷新走全量
+     */
+    private Thread startRefresh() {
+        when(feishuService.listRecordsAsync(eq(TABLE), any()))
+                .thenReturn(Mono.just(List.of(record("rec1", "alice", 1, 10))))
+                .thenReturn(Mono.fromFuture(pendingFetch));
+        store.getInvestmentRows();
+
+        Thread refresher = new Thread(() -> store.refresh(TABLE));
+        refresher.start();
+        verify(feishuService, timeout(5000).times(2)).listRecordsAsync(eq(TABLE), any());
+        return refresher;
+    }
+
+    private Map<String, Integer> amounts() {
+        Map<String, Integer> amounts = new HashMap<>();
+        for (InvestmentRow row : store.getInvestmentRows()) {
+            amounts.put(row.getRecordId(), row.getAmount());
+        }
+        return amounts;
+    }
+
+    private static Map<String, Object> record(String recordId, String username, long projectId, int amount) {
+        Map<String, Object> record = fields(username, projectId, amount);
+        record.put("record_id", recordId);
+        return record;
+    }
+
+    private static Map<String, Object> fields(String username, long projectId, int amount) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(InvestmentRow.F_INVESTOR_USERNAME, username);
+        fields.put(InvestmentRow.F_PROJECT_ID, projectId);
+        fields.put(InvestmentRow.F_AMOUNT, amount);
+        return fields;
+    }
+}
@@ -0,0 +1,99 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 投资记录二级索引：分组、项目总额，以及追加时不修改原索引
+ */
+class InvestmentIndexTest {
+
+    @Test
+    void groupsByInvestorAndProjectInWriteOrder() {
+        InvestmentRow a1 = row("r1", "alice", 1, 10);
+        InvestmentRow b1 = row("r2", "bob", 1, 20);
+        InvestmentRow a2 = row("r3", "alice", 2, 30);
+        InvestmentIndex index = InvestmentIndex.build(List.of(a1, b1, a2));
+
+        assertEquals(List.of(a1, a2), index.byInvestor("alice"));
+        assertEquals(List.of(b1), index.byInvestor("bob"));
+        assertEquals(List.of(a1, b1), index.byProject(1L));
+        assertEquals(List.of(a2), index.byProject(2L));
+        assertEquals(30, index.projectTotal(1L));
+        assertEquals(30, index.projectTotal(2L));
+    }
+
+    @Test
+    void unknownKeysAreEmpty() {
+        InvestmentIndex index = InvestmentIndex.build(List.of(row("r1", "alice", 1, 10)));
+
+        assertTrue(index.byInvestor("carol").isEmpty());
+        assertTrue(index.byProject(99L).isEmpty());
+        assertEquals(0, index.projectTotal(99L));
+        assertTrue(InvestmentIndex.EMPTY.byInvestor("alice").isEmpty());
+        assertSame(InvestmentIndex.EMPTY, InvestmentIndex.build(List.of()));
+    }
+
+    @Test
+    void appendLeavesOriginalIndexUnchanged() {
+        InvestmentRow a1 = row("r1", "alice", 1, 10);
+        InvestmentIndex original = InvestmentIndex.build(List.of(a1));
+
+        InvestmentRow a2 = row("r2", "alice", 1, 5);
+        InvestmentRow a3 = row("r3", "alice", 1, 7);
+        InvestmentRow c1 = row("r4", "carol", 3, 40);
+        InvestmentIndex appended = original.withAppended(List.of(a2, a3, c1));
+
+        assertEquals(List.of(a1), original.byInvestor("alice"));
+        assertEquals(List.of(a1), original.byProject(1L));
+        assertEquals(10, original.projectTotal(1L));
+        assertTrue(original.byInvestor("carol").isEmpty());
+
+        assertEquals(List.of(a1, a2, a3), appended.byInvestor("alice"));
+        assertEquals(List.of(a1, a2, a3), appended.byProject(1L));
+        assertEquals(22, appended.projectTotal(1L));
+        assertEquals(List.of(c1), appended.byInvestor("carol"));
+        assertEquals(40, appended.projectTotal(3L));
+
+        // 再次追加不影响上一代索引
+        InvestmentIndex next = appended.withAppended(List.of(row("r5", "alice", 1, 1)));
+        assertEquals(3, appended.byInvestor("alice").size());
+        assertEquals(4, next.byInvestor("alice").size());
+        assertEquals(23, next.projectTotal(1L));
+    }
+
+    @Test
+    void returnedGroupsAreReadOnly() {
+        InvestmentIndex index = InvestmentIndex.build(List.of(row("r1", "alice", 1, 10)));
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> index.byInvestor("alice").add(row("r2", "alice", 1, 1)));
+        assertThrows(UnsupportedOperationException.class, () -> index.byProject(1L).clear());
+    }
+
+    @Test
+    void rowWithoutInvestorCountsOnlyForProject() {
+        InvestmentRow anonymous = row("r1", null, 1, 10);
+        InvestmentIndex index = InvestmentIndex.build(List.of(anonymous));
+
+        assertTrue(index.byInvestor(null).isEmpty());
+        assertEquals(List.of(anonymous), index.byProject(1L));
+        assertEquals(10, index.projectTotal(1L));
+    }
+
+    private static InvestmentRow row(String recordId, String username, long projectId, int amount) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("record_id", recordId);
+        record.put(InvestmentRow.F_INVESTOR_USERNAME, username);
+        record.put(InvestmentRow.F_PROJECT_ID, projectId);
+        record.put(InvestmentRow.F_AMOUNT, amount);
+        record.put(InvestmentRow.F_TIME, System.currentTimeMillis());
+        return InvestmentRow.from(record);
+    }
+}
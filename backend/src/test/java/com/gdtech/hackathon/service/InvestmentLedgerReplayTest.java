@@ -0,0 +1,220 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.config.FeishuConfig;
+import com.gdtech.hackathon.config.HackathonProperties;
+import com.gdtech.hackathon.model.row.InvestmentRow;
+import com.gdtech.hackathon.model.row.InvestorRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 投资日志重放：被拒绝/超时的投资不能重放，剩余额度以投资人表为准只扣除未写回的投资
+ */
+class InvestmentLedgerReplayTest {
+
+    private static final String INVESTMENTS_TABLE = "tblInvestments";
+    private static final String INVESTORS_TABLE = "tblInvestors";
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FeishuService feishuService;
+    private FeishuTableStore tableStore;
+    private InvestmentLedger ledger;
+    private InvestorRow alice;
+
+    @BeforeEach
+    void setUp() {
+        feishuService = mock(FeishuService.class);
+        tableStore = mock(FeishuTableStore.class);
+        when(feishuService.batchCreateRecords(anyString(), anyList(), anyString())).thenAnswer(invocation -> {
+            List<?> fieldsList = invocation.getArgument(1);
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < fieldsList.size(); i++) {
+                ids.add("recNew" + i);
+            }
+            return ids;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null) {
+            ledger.stopWriter();
+        }
+    }
+
+    @Test
+    void rejectedAppendIsNotReplayed() throws Exception {
+        writeJournal(
+                accepted("a1", 90, 10),
+                accepted("a2", 70, 20),
+                rejected("a2"));
+        startLedger(100);
+
+        assertEquals(90, ledger.getBalance("alice"));
+        verify(feishuService, timeout(2000)).batchCreateRecords(eq(INVESTMENTS_TABLE), argThat(list ->
+                list.size() == 1 && Integer.valueOf(10).equals(list.get(0).get(InvestmentRow.F_AMOUNT))), anyString());
+        verify(feishuService, after(300).times(1)).batchCreateRecords(anyString(), anyList(), anyString());
+    }
+
+    @Test
+    void timedOutAppendLeavesOnlyRejection() throws Exception {
+        // 超时撤销的写入不会落盘，日志中只剩补偿的拒绝记录
+        writeJournal(rejected("a1"));
+        startLedger(100);
+
+        verify(feishuService, after(300).never()).batchCreateRecords(anyString(), anyList(), anyString());
+        assertNull(ledger.getBalance("alice"), "没有需要恢复的扣减");
+        assertEquals(90, ledger.accept(alice, investmentFields(10), 10));
+    }
+
+    @Test
+    void unsyncedDebitIsAppliedToInvestorTableBalance() throws Exception {
+        writeJournal(accepted("a1", 90, 10), created("a1"));
+        startLedger(100);
+
+        assertEquals(90, ledger.getBalance("alice"));
+        verify(feishuService, after(300).never()).batchCreateRecords(anyString(), anyList(), anyString());
+    }
+
+    @Test
+    void adminTopUpAfterSyncIsKept() throws Exception {
+        writeJournal(accepted("a1", 90, 10), created("a1"), balanceSynced(90));
+        // 写回后管理员在投资人表中追加了额度
+        startLedger(200);
+
+        assertEquals(190, ledger.accept(alice, investmentFields(10), 10));
+    }
+
+    @Test
+    void balanceWrittenBeforeMarkerIsNotDebitedTwice() throws Exception {
+        // 剩余额度已写入飞书，但"已写回"标记落盘前宕机
+        writeJournal(accepted("a1", 90, 10), created("a1"));
+        startLedger(90);
+
+        assertEquals(90, ledger.getBalance("alice"));
+    }
+
+    @Test
+    void lostCreateResponseIsRetriedWithSameClientToken() throws Exception {
+        // 第一次写入飞书已提交但响应超时，重试必须带同一个 client_token
+        when(feishuService.batchCreateRecords(anyString(), anyList(), anyString()))
+                .thenThrow(new RuntimeException("响应超时"))
+                .thenReturn(List.of("recCreated"));
+        writeJournal();
+        startLedger(100);
+
+        assertEquals(90, ledger.accept(alice, investmentFields(10), 10));
+
+        ArgumentCaptor<String> tokens = ArgumentCaptor.forClass(String.class);
+        verify(feishuService, timeout(5000).times(2))
+                .batchCreateRecords(eq(INVESTMENTS_TABLE), anyList(), tokens.capture());
+        assertEquals(tokens.getAllValues().get(0), tokens.getAllValues().get(1));
+        verify(tableStore, timeout(2000).times(1)).appendRecords(eq(INVESTMENTS_TABLE), anyMap());
+    }
+
+    @Test
+    void onlyDebitsAfterLastSyncedBalanceAreUnreflected() {
+        List<InvestmentLedger.JournaledDebit> debits = new ArrayList<>(List.of(
+                new InvestmentLedger.JournaledDebit(90, 10),
+                new InvestmentLedger.JournaledDebit(70, 20),
+                new InvestmentLedger.JournaledDebit(65, 5)));
+
+        assertEquals(25, InvestmentLedger.unreflectedAmount(debits, 90));
+        assertEquals(0, InvestmentLedger.unreflectedAmount(debits, 65));
+        assertEquals(35, InvestmentLedger.unreflectedAmount(debits, 150));
+        assertEquals(3, debits.size(), "计算未写回金额不修改传入的列表");
+
+        InvestmentLedger.dropReflected(debits, 70);
+        assertEquals(1, debits.size());
+    }
+
+    private void startLedger(int remainingAmount) throws Exception {
+        FeishuConfig feishuConfig = mock(FeishuConfig.class);
+        when(feishuConfig.getInvestmentsTableId()).thenReturn(INVESTMENTS_TABLE);
+        when(feishuConfig.getInvestorsTableId()).thenReturn(INVESTORS_TABLE);
+
+        Map<String, Object> investor = new HashMap<>();
+        investor.put("record_id", "recAlice");
+        investor.put(InvestorRow.F_USERNAME, "alice");
+        investor.put(InvestorRow.F_REMAINING_AMOUNT, remainingAmount);
+        alice = InvestorRow.from(investor);
+        when(tableStore.findInvestorByUsername("alice")).thenReturn(alice);
+
+        HackathonProperties properties = new HackathonProperties();
+        properties.getJournal().setPath(dir.resolve("journal.log").toString());
+        properties.getJournal().setDeadLetterPath(dir.resolve("dead-letter.log").toString());
+
+        ledger = new InvestmentLedger(feishuService, tableStore, feishuConfig, properties, objectMapper);
+        ledger.startWriter();
+    }
+
+    @SafeVarargs
+    private void writeJournal(Map<String, Object>... entries) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (Map<String, Object> entry : entries) {
+            content.append(objectMapper.writeValueAsString(entry)).append('\n');
+        }
+        Files.write(dir.resolve("journal.log"), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Object> investmentFields(int amount) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(InvestmentRow.F_INVESTOR_USERNAME, "alice");
+        fields.put(InvestmentRow.F_PROJECT_ID, 1);
+        fields.put(InvestmentRow.F_AMOUNT, amount);
+        fields.put(InvestmentRow.F_TIME, System.nanoTime());
+        return fields;
+    }
+
+    private static Map<String, Object> accepted(String id, int balance, int amount) {
+        Map<String, Object> fields = investmentFields(amount);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("type", InvestmentJournal.TYPE_ACCEPTED);
+        entry.put("id", id);
+        entry.put("username", "alice");
+        entry.put("investorRecordId", "recAlice");
+        entry.put("balance", balance);
+        entry.put("fields", fields);
+        return entry;
+    }
+
+    private static Map<String, Object> created(String id) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("type", InvestmentJournal.TYPE_CREATED);
+        entry.put("id", id);
+        entry.put("recordId", "rec" + id);
+        return entry;
+    }
+
+    private static Map<String, Object> rejected(String id) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("type", InvestmentJournal.TYPE_REJECTED);
+        entry.put("id", id);
+        return entry;
+    }
+
+    private static Map<String, Object> balanceSynced(int balance) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("type", InvestmentJournal.TYPE_BALANCE_SYNCED);
+        entry.put("username", "alice");
+        entry.put("balance", balance);
+        return entry;
+    }
+}
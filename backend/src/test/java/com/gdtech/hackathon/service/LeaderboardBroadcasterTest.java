@@ -0,0 +1,90 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.HackathonProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 排行榜SSE推送：慢订阅者不阻塞其他订阅者，发送卡住超时的订阅者被断开
+ */
+class LeaderboardBroadcasterTest {
+
+    private static final long WAIT_MILLIS = 5000;
+
+    private final HackathonService hackathonService = mock(HackathonService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LeaderboardBroadcaster broadcaster;
+    private Consumer<LeaderboardSnapshot> listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        HackathonProperties properties = new HackathonProperties();
+        properties.getLeaderboard().setSendTimeout(1);
+        broadcaster = new LeaderboardBroadcaster(hackathonService, properties);
+        broadcaster.register();
+        ArgumentCaptor<Consumer<LeaderboardSnapshot>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(hackathonService).addLeaderboardListener(captor.capture());
+        listener = captor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void slowSubscriberDoesNotBlockOthersAndIsDropped() throws Exception {
+        SseEmitter slow = mock(SseEmitter.class);
+        CountDownLatch slowSending = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            slowSending.countDown();
+            release.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(slow).send(any(SseEmitter.SseEventBuilder.class));
+        SseEmitter fast = mock(SseEmitter.class);
+        broadcaster.subscribe(slow);
+        broadcaster.subscribe(fast);
+
+        listener.accept(snapshot(1));
+        assertTrue(slowSending.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        verify(fast, timeout(WAIT_MILLIS)).send(any(SseEmitter.SseEventBuilder.class));
+
+        // 慢订阅者的发送超过1秒仍未完成，下一次推送时被断开，其他订阅者照常收到
+        Thread.sleep(1100);
+        listener.accept(snapshot(2));
+        verify(fast, timeout(WAIT_MILLIS).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        assertEquals(1, broadcaster.getSubscriberCount());
+
+        release.countDown();
+        verify(slow, timeout(WAIT_MILLIS)).complete();
+        verify(slow, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void firstSnapshotIsLoadedWithoutBroadcastThread() {
+        when(hackathonService.peekLeaderboardSnapshot()).thenReturn(null);
+        broadcaster.subscribe(mock(SseEmitter.class));
+
+        verify(hackathonService, timeout(WAIT_MILLIS)).getLeaderboardSnapshot();
+    }
+
+    private static LeaderboardSnapshot snapshot(long version) {
+        byte[] body = ("{\"version\":" + version + "}").getBytes(StandardCharsets.UTF_8);
+        return new LeaderboardSnapshot(version, List.of(), body, body, "\"" + version + "\"", 0, 0);
+    }
+}
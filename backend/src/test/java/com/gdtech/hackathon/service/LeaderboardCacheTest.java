@@ -0,0 +1,203 @@
+package com.gdtech.hackathon.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdtech.hackathon.model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排行榜快照缓存：增量合并结果与全量一致，版本过期/未知时返回全量
+ */
+class LeaderboardCacheTest {
+
+    private static final long WAIT_MILLIS = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<List<Project>> source = new AtomicReference<>();
+
+    @Test
+    void mergedDeltaEqualsFullSnapshot() throws Exception {
+        source.set(List.of(project(1, 10, 0), project(2, 20, 0), project(3, 30, 0)));
+        LeaderboardCache cache = newCache(3600_000L);
+        LeaderboardSnapshot first = cache.getSnapshot();
+        JsonNode base = data(first.getBody());
+
+        // 项目1变化、项目2删除、项目4新增
+        source.set(List.of(project(1, 15, 100), project(3, 30, 0), project(4, 5, 0)));
+        LeaderboardSnapshot second = refresh(cache, first.getVersion());
+
+        JsonNode delta = data(cache.getDeltaBody(first.getVersion()));
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(first.getVersion(), delta.get("baseVersion").asLong());
+        assertEquals(second.getVersion(), delta.get("version").asLong());
+        assertEquals(2, delta.get("projects").size(), "只包含变化和新增的项目");
+        assertEquals(List.of(2L), ids(delta.get("removed")));
+
+        assertEquals(data(second.getBody()), merge(base, delta));
+    }
+
+    @Test
+    void deltaAgainstCurrentVersionIsEmpty() throws Exception {
+        source.set(List.of(project(1, 10, 0)));
+        LeaderboardCache cache = newCache(3600_000L);
+        LeaderboardSnapshot current = cache.getSnapshot();
+
+        JsonNode delta = data(cache.getDeltaBody(current.getVersion()));
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(0, delta.get("projects").size());
+        assertSame(cache.getDeltaBody(current.getVersion()), cache.getDeltaBody(current.getVersion()),
+                "同一基准版本的增量只序列化一次");
+    }
+
+    @Test
+    void unknownOrPreBootVersionGetsFullResponse() throws Exception {
+        long beforeBoot = System.currentTimeMillis();
+        source.set(List.of(project(1, 10, 0), project(2, 20, 0)));
+        LeaderboardCache cache = newCache(3600_000L);
+        LeaderboardSnapshot current = cache.getSnapshot();
+
+        assertTrue(current.getVersion() > beforeBoot, "版本号以启动时间为起点");
+        for (long since : new long[]{0L, 1L, beforeBoot - 1, current.getVersion() + 1}) {
+            JsonNode delta = data(cache.getDeltaBody(since));
+            assertTrue(delta.get("full").asBoolean(), "since=" + since);
+            assertEquals(data(current.getBody()), delta.get("projects"));
+        }
+    }
+
+    @Test
+    void versionOutsideHistoryGetsFullResponse() throws Exception {
+        source.set(List.of(project(1, 0, 0)));
+        LeaderboardCache cache = newCache(3600_000L);
+        long oldest = cache.getSnapshot().getVersion();
+
+        long version = oldest;
+        for (int uv = 1; uv <= 40; uv++) {
+            source.set(List.of(project(1, uv, 0)));
+            version = refresh(cache, version).getVersion();
+        }
+
+        assertTrue(data(cache.getDeltaBody(oldest)).get("full").asBoolean());
+        assertFalse(data(cache.getDeltaBody(version - 1)).get("full").asBoolean());
+    }
+
+    @Test
+    void unchangedRefreshKeepsVersion() throws Exception {
+        source.set(List.of(project(1, 10, 0)));
+        LeaderboardCache cache = newCache(3600_000L);
+        List<LeaderboardSnapshot> notified = Collections.synchronizedList(new ArrayList<>());
+        cache.addListener(notified::add);
+        LeaderboardSnapshot first = cache.getSnapshot();
+        long loads = loadCount(cache);
+
+        source.set(List.of(project(1, 10, 0)));
+        cache.invalidate();
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (loadCount(cache) == loads || Boolean.TRUE.equals(cache.stats().get("stale"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "后台刷新超时");
+            Thread.sleep(10);
+        }
+
+        LeaderboardSnapshot renewed = cache.getSnapshot();
+        assertEquals(first.getVersion(), renewed.getVersion());
+        assertEquals(first.getEtag(), renewed.getEtag());
+        assertTrue(notified.isEmpty(), "内容未变化不通知监听器");
+    }
+
+    @Test
+    void expiredSnapshotIsServedWhileRefreshing() throws Exception {
+        source.set(List.of(project(1, 10, 0)));
+        LeaderboardCache cache = newCache(50L);
+        LeaderboardSnapshot first = cache.getSnapshot();
+
+        source.set(List.of(project(1, 11, 0)));
+        Thread.sleep(80);
+        // 过期后仍立即返回旧快照，同时触发后台刷新
+        assertSame(first, cache.getSnapshot());
+
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (cache.peekSnapshot().getVersion() == first.getVersion()) {
+            assertTrue(System.currentTimeMillis() < deadline, "后台刷新超时");
+            Thread.sleep(10);
+        }
+        assertEquals(11L, cache.get().get(0).getUv());
+    }
+
+    private LeaderboardCache newCache(long refreshAfterMillis) {
+        return new LeaderboardCache(() -> copies(source.get()), objectMapper, refreshAfterMillis);
+    }
+
+    /**
+     * 标记失效并等待后台刷新生成新版本
+     */
+    private static LeaderboardSnapshot refresh(LeaderboardCache cache, long previousVersion) throws InterruptedException {
+        cache.invalidate();
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        LeaderboardSnapshot current = cache.getSnapshot();
+        while (current.getVersion() == previousVersion) {
+            assertTrue(System.currentTimeMillis() < deadline, "后台刷新超时");
+            Thread.sleep(10);
+            current = cache.getSnapshot();
+        }
+        return current;
+    }
+
+    private static long loadCount(LeaderboardCache cache) {
+        return (Long) cache.stats().get("loadCount");
+    }
+
+    /**
+     * 与前端相同的合并方式：按ID替换变化的项目、删除已移除的项目，再按 order 排列
+     */
+    private JsonNode merge(JsonNode base, JsonNode delta) {
+        Map<Long, JsonNode> byId = new HashMap<>();
+        for (JsonNode project : base) {
+            byId.put(project.get("id").asLong(), project);
+        }
+        for (Long id : ids(delta.get("removed"))) {
+            byId.remove(id);
+        }
+        for (JsonNode project : delta.get("projects")) {
+            byId.put(project.get("id").asLong(), project);
+        }
+        List<JsonNode> merged = new ArrayList<>();
+        for (Long id : ids(delta.get("order"))) {
+            merged.add(byId.get(id));
+        }
+        return objectMapper.valueToTree(merged);
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode id : array) {
+            ids.add(id.asLong());
+        }
+        return ids;
+    }
+
+    private JsonNode data(byte[] body) throws Exception {
+        return objectMapper.readTree(body).get("data");
+    }
+
+    private static List<Project> copies(List<Project> projects) {
+        List<Project> result = new ArrayList<>(projects.size());
+        for (Project p : projects) {
+            result.add(project(p.getId(), p.getUv(), p.getInvestment()));
+        }
+        return result;
+    }
+
+    private static Project project(long id, long uv, int investment) {
+        Project project = new Project();
+        project.setId(id);
+        project.setName("项目" + id);
+        project.setTeamNumber(String.valueOf(id));
+        project.setUv(uv);
+        project.setInvestment(investment);
+        return project;
+    }
+}
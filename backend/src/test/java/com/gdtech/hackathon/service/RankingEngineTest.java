@@ -0,0 +1,169 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排名引擎与原排序规则（各阶段整体排序）的一致性
+ */
+class RankingEngineTest {
+
+    private static final int QUALIFIED_COUNT = 15;
+
+    /**
+     * 原海选期/锁定期规则：UV降序，UV相同按队伍编号字符串升序
+     * （编号位数相同时与现在的数值比较一致，测试数据使用等宽编号）
+     */
+    private static final Comparator<Project> OLD_UV_STRING_ORDER = (a, b) -> {
+        int cmp = Long.compare(b.getUv(), a.getUv());
+        if (cmp != 0) return cmp;
+        String teamA = a.getTeamNumber() != null ? a.getTeamNumber() : "999";
+        String teamB = b.getTeamNumber() != null ? b.getTeamNumber() : "999";
+        return teamA.compareTo(teamB);
+    };
+
+    /**
+     * 原投资期/结束期非晋级区规则：UV降序，UV相同按解析后的队伍编号升序
+     */
+    private static final Comparator<Project> OLD_UV_ORDER = (a, b) -> {
+        int cmp = Long.compare(b.getUv(), a.getUv());
+        if (cmp != 0) return cmp;
+        return Integer.compare(RankingEngine.parseTeamNumber(a.getTeamNumber()),
+                RankingEngine.parseTeamNumber(b.getTeamNumber()));
+    };
+
+    /**
+     * 原投资期/结束期晋级区规则：投资额降序，相同按UV降序，再相同按队伍编号升序
+     */
+    private static final Comparator<Project> OLD_INVESTMENT_ORDER = (a, b) -> {
+        int cmp = Integer.compare(b.getInvestment(), a.getInvestment());
+        return cmp != 0 ? cmp : OLD_UV_ORDER.compare(a, b);
+    };
+
+    @Test
+    void matchesOldOrderingAcrossStagesAndIncrementalUpdates() {
+        Random random = new Random(42);
+        List<Project> base = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            // UV和投资额取值范围很小，制造大量并列，验证并列时的次序
+            base.add(project(id, String.format("%02d", id), random.nextInt(10), random.nextInt(5) * 10));
+        }
+        Set<Long> qualifiedIds = new HashSet<>();
+        for (long id = 3; id <= 40; id += 3) {
+            qualifiedIds.add(id);
+        }
+
+        RankingEngine engine = new RankingEngine();
+        for (RankingEngine.Mode mode : RankingEngine.Mode.values()) {
+            for (int round = 0; round < 20; round++) {
+                // 每轮修改几个项目的UV/投资额，偶尔移除或加回项目，走增量更新路径
+                for (int i = 0; i < 3; i++) {
+                    Project changed = base.get(random.nextInt(base.size()));
+                    changed.setUv((long) random.nextInt(10));
+                    changed.setInvestment(random.nextInt(5) * 10);
+                }
+                List<Project> input = copies(base);
+                if (round % 5 == 4) {
+                    input.remove(random.nextInt(input.size()));
+                }
+                Collections.shuffle(input, random);
+
+                List<Project> expected = oldRank(copies(input), mode, qualifiedIds);
+                List<Project> actual = copies(input);
+                engine.rank(actual, mode, qualifiedIds, QUALIFIED_COUNT);
+
+                assertEquals(describe(expected), describe(actual), mode + " 第" + round + "轮");
+            }
+        }
+    }
+
+    @Test
+    void teamNumbersCompareNumerically() {
+        List<Project> projects = new ArrayList<>(List.of(
+                project(1, "10", 5, 0),
+                project(2, "2", 5, 0),
+                project(3, "abc", 5, 0),
+                project(4, null, 5, 0)));
+
+        new RankingEngine().rank(projects, RankingEngine.Mode.UV_TOP_N, Collections.emptySet(), 2);
+
+        assertEquals(List.of(2L, 1L, 3L, 4L), projects.stream().map(Project::getId).collect(Collectors.toList()));
+        assertTrue(projects.get(1).getQualified());
+        assertFalse(projects.get(2).getQualified());
+    }
+
+    @Test
+    void parseTeamNumberFallsBackWithoutExceptions() {
+        assertEquals(12, RankingEngine.parseTeamNumber(" 12 "));
+        assertEquals(RankingEngine.DEFAULT_TEAM_NUMBER, RankingEngine.parseTeamNumber(null));
+        assertEquals(RankingEngine.DEFAULT_TEAM_NUMBER, RankingEngine.parseTeamNumber(""));
+        assertEquals(RankingEngine.DEFAULT_TEAM_NUMBER, RankingEngine.parseTeamNumber("A1"));
+        assertEquals(RankingEngine.DEFAULT_TEAM_NUMBER, RankingEngine.parseTeamNumber("-3"));
+        assertEquals(RankingEngine.DEFAULT_TEAM_NUMBER, RankingEngine.parseTeamNumber("12345678901"));
+    }
+
+    /**
+     * 原实现：每次对整个列表排序后写入排名和晋级状态
+     */
+    private static List<Project> oldRank(List<Project> projects, RankingEngine.Mode mode, Set<Long> qualifiedIds) {
+        if (mode == RankingEngine.Mode.UV_TOP_N) {
+            projects.sort(OLD_UV_STRING_ORDER);
+            for (int i = 0; i < projects.size(); i++) {
+                projects.get(i).setRank(i + 1);
+                projects.get(i).setQualified(i < QUALIFIED_COUNT);
+            }
+            return projects;
+        }
+
+        List<Project> qualified = new ArrayList<>();
+        List<Project> nonQualified = new ArrayList<>();
+        for (Project project : projects) {
+            project.setQualified(qualifiedIds.contains(project.getId()));
+            (project.getQualified() ? qualified : nonQualified).add(project);
+        }
+        if (mode == RankingEngine.Mode.LOCKED_BY_INVESTMENT) {
+            qualified.sort(OLD_INVESTMENT_ORDER);
+            nonQualified.sort(OLD_UV_ORDER);
+        } else {
+            qualified.sort(OLD_UV_STRING_ORDER);
+            nonQualified.sort(OLD_UV_STRING_ORDER);
+        }
+        for (int i = 0; i < qualified.size(); i++) {
+            qualified.get(i).setRank(i + 1);
+        }
+        for (int i = 0; i < nonQualified.size(); i++) {
+            nonQualified.get(i).setRank(i + 1);
+        }
+        List<Project> result = new ArrayList<>(qualified);
+        result.addAll(nonQualified);
+        return result;
+    }
+
+    private static List<String> describe(List<Project> projects) {
+        return projects.stream()
+                .map(p -> p.getId() + "#" + p.getRank() + (p.getQualified() ? "Q" : ""))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Project> copies(List<Project> projects) {
+        List<Project> result = new ArrayList<>(projects.size());
+        for (Project p : projects) {
+            result.add(project(p.getId(), p.getTeamNumber(), p.getUv(), p.getInvestment()));
+        }
+        return result;
+    }
+
+    private static Project project(long id, String teamNumber, long uv, int investment) {
+        Project project = new Project();
+        project.setId(id);
+        project.setTeamNumber(teamNumber);
+        project.setUv(uv);
+        project.setInvestment(investment);
+        return project;
+    }
+}
@@ -0,0 +1,92 @@
+package com.gdtech.hackathon.service;
+
+import com.gdtech.hackathon.config.HackathonProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 会话令牌签发与校验
+ */
+class SessionTokenServiceTest {
+
+    private static final String SECRET = "test-secret-0123456789abcdef";
+
+    @Test
+    void issuedTokenResolvesToUsername() {
+        SessionTokenService service = newService(SECRET, 24);
+        String token = service.issue("alice");
+
+        assertEquals("alice", service.resolve(token));
+        assertEquals("alice", service.resolve("Bearer " + token));
+        assertEquals("alice", service.resolve("  bearer " + token + " "));
+    }
+
+    @Test
+    void usernameContainingColonSurvivesRoundTrip() {
+        SessionTokenService service = newService(SECRET, 24);
+
+        assertEquals("team:alice", service.resolve(service.issue("team:alice")));
+    }
+
+    @Test
+    void tokensAreSharedBetweenInstancesWithSameSecret() {
+        String token = newService(SECRET, 24).issue("alice");
+
+        assertEquals("alice", newService(SECRET, 24).resolve(token));
+        assertNull(newService(SECRET + "-other", 24).resolve(token));
+    }
+
+    @Test
+    void randomSecretWhenNotConfigured() {
+        String token = newService(null, 24).issue("alice");
+
+        assertNull(newService(null, 24).resolve(token), "未配置密钥时每个实例使用各自的随机密钥");
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        SessionTokenService service = newService(SECRET, -1);
+
+        assertNull(service.resolve(service.issue("alice")));
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        SessionTokenService service = newService(SECRET, 24);
+        String token = service.issue("alice");
+        int dot = token.indexOf('.');
+
+        // 替换账号但保留原签名
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("bob:" + Long.MAX_VALUE).getBytes(StandardCharsets.UTF_8));
+        assertNull(service.resolve(forgedPayload + token.substring(dot)));
+
+        // 篡改签名
+        char last = token.charAt(token.length() - 1);
+        assertNull(service.resolve(token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A')));
+        assertNull(service.resolve(token.substring(0, dot + 1)));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        SessionTokenService service = newService(SECRET, 24);
+
+        assertNull(service.resolve(null));
+        assertNull(service.resolve(""));
+        assertNull(service.resolve("Bearer "));
+        assertNull(service.resolve("no-dot"));
+        assertNull(service.resolve(".signature"));
+        assertNull(service.resolve("!!!.???"));
+    }
+
+    private static SessionTokenService newService(String secret, int ttlHours) {
+        HackathonProperties properties = new HackathonProperties();
+        properties.getSession().setSecret(secret);
+        properties.getSession().setTtlHours(ttlHours);
+        return new SessionTokenService(properties);
+    }
+}
@@ -9,7 +9,10 @@ let currentStage = null;
 let projects = [];
 let stageConfig = {};
 let isSubmittingInvestment = false;
-let autoRefreshTimer = null;  // 自动刷新定时器
+let autoRefreshTimer = null;  // 自动刷新定时器（不支持SSE时的轮询兜底）
+let leaderboardSource = null;  // 排行榜SSE连接
+let pendingProjects = null;    // 投资弹窗打开期间收到的排行榜，弹窗关闭后再渲染
+let leaderboardVersion = null; // 当前持有的排行榜版本号，轮询时只拉取此后变化的项目
 let isInvestModalOpen = false; // 投资弹窗是否打开
 
 // ===== Loading辅助函数 =====
@@ -104,6 +107,7 @@ async function fetchProjects(silent = false) {
 
         if (result.code === 200) {
             projects = result.data;
+            leaderboardVersion = response.headers.get('X-Leaderboard-Version');
 
             // 如果是投资期或结束期，打印排名详情（静默模式跳过）
             if (!silent && (currentStage === 'investment' || currentStage === 'ended')) {
@@ -127,6 +131,7 @@ async function fetchProjects(silent = false) {
 
 /**
  * 启动自动刷新（仅投资期）
+ * 优先订阅服务端推送（SSE），排行榜变化时才接收数据；浏览器不支持或连接失败时回退为30秒轮询
  */
 function startAutoRefresh() {
     // 如果不是投资期，不启动自动刷新
@@ -135,9 +140,68 @@ function startAutoRefresh() {
         return;
     }
 
-    // 清除现有定时器
+    // 清除现有定时器和连接
     stopAutoRefresh();
 
+    if (window.EventSource) {
+        startLeaderboardStream();
+    } else {
+        startPolling();
+    }
+}
+
+/**
+ * 订阅排行榜推送
+ */
+function startLeaderboardStream() {
+    console.log('订阅排行榜推送');
+    leaderboardSource = new EventSource(`${API_BASE_URL}/projects/stream`);
+
+    leaderboardSource.addEventListener('leaderboard', (event) => {
+        try {
+            const result = JSON.parse(event.data);
+            if (result.code !== 200) {
+                return;
+            }
+            // 如果投资弹窗打开，暂存数据，弹窗关闭后再渲染
+            if (isInvestModalOpen) {
+                pendingProjects = result.data;
+                leaderboardVersion = event.lastEventId || leaderboardVersion;
+                return;
+            }
+            projects = result.data;
+            leaderboardVersion = event.lastEventId || leaderboardVersion;
+            renderProjects();
+        } catch (error) {
+            console.error('处理排行榜推送失败:', error);
+        }
+    });
+
+    leaderboardSource.onerror = () => {
+        // 连接被关闭（而不是断线重连中）时回退为轮询
+        if (leaderboardSource && leaderboardSource.readyState === EventSource.CLOSED) {
+            console.warn('排行榜推送连接已关闭，回退为轮询');
+            leaderboardSource = null;
+            startPolling();
+        }
+    };
+}
+
+/**
+ * 投资弹窗关闭后渲染期间收到的排行榜
+ */
+function flushPendingProjects() {
+    if (pendingProjects) {
+        projects = pendingProjects;
+        pendingProjects = null;
+        renderProjects();
+    }
+}
+
+/**
+ * 轮询刷新（30秒）
+ */
+function startPolling() {
     console.log('启动自动刷新，间隔30秒');
 
     // 设置30秒定时刷新
@@ -150,7 +214,11 @@ function startAutoRefresh() {
 
         console.log('执行静默刷新...');
         try {
-            await fetchProjects(true);  // 静默模式：不显示loading，不打印详细日志
+            if (leaderboardVersion) {
+                await fetchProjectsDelta();  // 只拉取变化的项目
+            } else {
+                await fetchProjects(true);  // 静默模式：不显示loading，不打印详细日志
+            }
             renderProjects();  // 重新渲染项目列表
             console.log('静默刷新完成');
         } catch (error) {
@@ -159,10 +227,36 @@ function startAutoRefresh() {
     }, 30000); // 30秒
 }
 
+/**
+ * 增量刷新项目列表：传入持有的版本号，只接收此后变化的项目并合并到本地列表
+ */
+async function fetchProjectsDelta() {
+    const response = await fetch(`${API_BASE_URL}/projects?since=${encodeURIComponent(leaderboardVersion)}`);
+    const result = await response.json();
+    if (result.code !== 200 || !result.data || result.data.order === undefined) {
+        return projects;
+    }
+
+    const delta = result.data;
+    const byId = new Map(delta.full ? [] : projects.map(p => [p.id, p]));
+    (delta.projects || []).forEach(p => byId.set(p.id, p));
+    (delta.removed || []).forEach(id => byId.delete(id));
+
+    // 按服务端顺序重建列表
+    projects = delta.order.map(id => byId.get(id)).filter(Boolean);
+    leaderboardVersion = String(delta.version);
+    return projects;
+}
+
 /**
  * 停止自动刷新
  */
 function stopAutoRefresh() {
+    if (leaderboardSource) {
+        leaderboardSource.close();
+        leaderboardSource = null;
+        console.log('取消排行榜推送订阅');
+    }
     if (autoRefreshTimer) {
         clearInterval(autoRefreshTimer);
         autoRefreshTimer = null;
@@ -255,17 +349,45 @@ async function login(username, password) {
     }
 }
 
+/**
+ * 会话令牌请求头（登录时签发，保存在localStorage）
+ */
+function authHeaders() {
+    const token = localStorage.getItem('hackathon_session_token');
+    return token ? { 'Authorization': `Bearer ${token}` } : {};
+}
+
+/**
+ * 会话令牌失效（服务端返回401，如服务更换了签名密钥）：清除登录状态并提示重新登录
+ */
+function handleSessionExpired(message) {
+    clearLoginState();
+    const investModal = bootstrap.Modal.getInstance(document.getElementById('investModal'));
+    if (investModal) {
+        investModal.hide();
+    }
+    showToast(message || '登录已过期，请重新登录', 'warning');
+    showLoginModal();
+}
+
 /**
  * 获取投资人信息
+ * 持有会话令牌时凭令牌获取当前投资人，否则按账号获取；令牌失效时清除登录状态并提示重新登录
  */
 async function fetchInvestorInfo(username) {
     try {
         showLoading();
-        const response = await fetch(`${API_BASE_URL}/investor/${username}`);
+        const token = localStorage.getItem('hackathon_session_token');
+        const response = token
+            ? await fetch(`${API_BASE_URL}/investor/me`, { headers: authHeaders() })
+            : await fetch(`${API_BASE_URL}/investor/${username}`);
         const result = await response.json();
 
         if (result.code === 200) {
             return result.data;
+        } else if (token && result.code === 401) {
+            handleSessionExpired(result.message);
+            return null;
         } else {
             console.error('获取投资人信息失败:', result.message);
             return null;
@@ -287,7 +409,8 @@ async function invest(investorUsername, investorName, projectId, projectName, am
         const response = await fetch(`${API_BASE_URL}/invest`, {
             method: 'POST',
             headers: {
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                ...authHeaders()
             },
             body: JSON.stringify({
                 investorUsername,
@@ -302,6 +425,9 @@ async function invest(investorUsername, investorName, projectId, projectName, am
 
         if (result.code === 200) {
             return { success: true, message: result.message };
+        } else if (result.code === 401) {
+            handleSessionExpired(result.message);
+            return { success: false, expired: true, message: result.message };
         } else {
             return { success: false, message: result.message };
         }
@@ -332,6 +458,7 @@ document.addEventListener('DOMContentLoaded', async function() {
     investModalElement.addEventListener('hidden.bs.modal', function() {
         isInvestModalOpen = false;
         console.log('投资弹窗已关闭，恢复自动刷新');
+        flushPendingProjects();
     });
 });
 
@@ -508,6 +635,9 @@ function saveLoginState(investor) {
     if (investor && investor.username) {
         localStorage.setItem('hackathon_logged_user', investor.username);
     }
+    if (investor && investor.token) {
+        localStorage.setItem('hackathon_session_token', investor.token);
+    }
 }
 
 /**
@@ -515,6 +645,7 @@ function saveLoginState(investor) {
  */
 function clearLoginState() {
     localStorage.removeItem('hackathon_logged_user');
+    localStorage.removeItem('hackathon_session_token');
     currentUser = null;
 
     // 恢复登录按钮
@@ -600,9 +731,9 @@ async function handleLogin(e) {
         // 重置表单
         document.getElementById('loginForm').reset();
 
-        // 自动跳转到投资人页面
+        // 自动跳转到投资人页面（登录响应已包含最新投资人信息，无需再次获取）
         setTimeout(() => {
-            showInvestorPage();
+            showInvestorPage(true);
         }, 500); // 延迟500ms，等待toast显示和模态框关闭动画
     } else {
         showToast('账号或密码错误！', 'error');
@@ -646,7 +777,10 @@ async function showInvestModal(projectId) {
             currentUser = latestInvestor;
             console.log('最新剩余额度:', currentUser.remainingAmount);
         } else {
-            showToast('获取投资人信息失败，请重新登录', 'error');
+            // 令牌失效时已清除登录状态并弹出登录框
+            if (currentUser) {
+                showToast('获取投资人信息失败，请重新登录', 'error');
+            }
             return;
         }
     } catch (error) {
@@ -763,7 +897,7 @@ async function handleInvestment(e) {
             renderProjects();
 
             investForm.reset();
-        } else {
+        } else if (!result.expired) {
             showToast(result.message || '投资失败', 'error');
         }
     } catch (error) {
@@ -778,13 +912,18 @@ async function handleInvestment(e) {
 /**
  * 显示投资人页面
  */
-async function showInvestorPage() {
+async function showInvestorPage(skipRefresh = false) {
     if (!currentUser) return;
 
     // 刷新投资人信息
-    const investor = await fetchInvestorInfo(currentUser.username);
-    if (investor) {
-        currentUser = investor;
+    if (!skipRefresh) {
+        const investor = await fetchInvestorInfo(currentUser.username);
+        if (investor) {
+            currentUser = investor;
+        } else if (!currentUser) {
+            // 令牌失效，已清除登录状态
+            return;
+        }
     }
 
     // 隐藏主要内容，显示投资人页面